@@ -0,0 +1,40 @@
+package com.google;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Prints the retained heap size of each catalog backend for synthetic catalogs, both for the
+ * bare catalog and for the shared catalog a library searches, with its title order and both
+ * search indexes built. Direct buffers only count their small heap headers, so the off-heap
+ * columns show what the collector sees.
+ *
+ * <p>Run with {@code java -cp target/benchmarks.jar com.google.CatalogFootprint [size...]}.
+ */
+public class CatalogFootprint {
+  public static void main(String[] args) throws IOException {
+    String[] sizes = args.length == 0 ? new String[] {"1000", "100000", "1000000"} : args;
+    System.out.printf("%10s %10s %16s %16s %16s%n",
+        "videos", "", "heap (bytes)", "compact (bytes)", "off-heap (bytes)");
+    for (String size : sizes) {
+      Path catalog = SyntheticCatalog.get(Integer.parseInt(size));
+      SharedCatalog heap = load(catalog, new HeapCatalog.Builder());
+      SharedCatalog compact = load(catalog, new CompactCatalog.Builder());
+      SharedCatalog offHeap = load(catalog, new OffHeapCatalog.Builder());
+      System.out.printf("%10s %10s %16d %16d %16d%n", size, "catalog",
+          footprint(heap.catalog()), footprint(compact.catalog()), footprint(offHeap.catalog()));
+      System.out.printf("%10s %10s %16d %16d %16d%n", "", "+ indexes",
+          footprint(heap), footprint(compact), footprint(offHeap));
+    }
+  }
+
+  private static SharedCatalog load(Path path, VideoCatalog.Builder builder) throws IOException {
+    return SharedCatalog.read(path, ForkJoinPool.commonPool(), builder).withIndexes();
+  }
+
+  private static long footprint(Object root) {
+    return GraphLayout.parseInstance(root).totalSize();
+  }
+}
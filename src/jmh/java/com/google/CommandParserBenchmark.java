@@ -0,0 +1,74 @@
+package com.google;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures splitting and dispatching a mix of command lines, including ones with missing
+ * arguments, with all output discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandParserBenchmark {
+
+  private static final String[] LINES = {
+      "PLAY video_1_id", "pause", "CONTINUE", "SHOW_PLAYING", "STOP", "PLAY",
+      "ADD_TO_PLAYLIST my_playlist", "SHOW_PLAYLIST my_playlist 1", "NUMBER_OF_VIDEOS",
+      "FLAG_VIDEO", "no_such_command", "ALLOW_VIDEO video_2_id"
+  };
+
+  private CommandParser parser;
+  private CommandTokenizer tokenizer;
+
+  @Setup
+  public void setUp() throws IOException {
+    var videoPlayer = new VideoPlayer(new VideoLibrary(SyntheticCatalog.get(1000)),
+        new Output(OutputStream.nullOutputStream()));
+    parser = new CommandParser(videoPlayer);
+    tokenizer = new CommandTokenizer();
+  }
+
+  @Benchmark
+  public void dispatch() {
+    for (String line : LINES)
+      parser.executeCommand(line);
+  }
+
+  @Benchmark
+  public int tokenize() {
+    int tokens = 0;
+    for (String line : LINES)
+      tokens += tokenizer.tokenize(line).size();
+    return tokens;
+  }
+
+  /**
+   * The regex split the parser used to do, for comparison with {@link #tokenize()}.
+   */
+  @Benchmark
+  public int regexSplit() {
+    int tokens = 0;
+    for (String line : LINES) {
+      List<String> command = Arrays.asList(line.split("\\s+"));
+      tokens += command.size();
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,114 @@
+package com.google;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Opens many idle connections to a {@link CommandServer}, then drives it from a few active
+ * clients and prints the command latency they saw. Each active client sends one command at a
+ * time and waits for the prompt that ends its reply.
+ *
+ * <p>Run a server with {@code java -Dport=7000 -cp target/classes com.google.Run}, then
+ * {@code java -cp target/benchmarks.jar com.google.CommandServerLoad [port [idle [clients
+ * [commands]]]]}. With no port, a server over a synthetic catalog of 100,000 videos is started
+ * in this process, which needs two file descriptors per connection.
+ */
+public class CommandServerLoad {
+
+  private static final String[] COMMANDS = {
+      "PLAY video_1_id", "PAUSE", "CONTINUE", "SHOW_PLAYING", "STOP", "NUMBER_OF_VIDEOS",
+      "SEARCH_VIDEOS_WITH_TAG #tag999", "PLAY_RESULT 1"
+  };
+
+  public static void main(String[] args) throws Exception {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    int idle = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    int clients = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    int commands = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+    CommandServer server = null;
+    if (port == 0) {
+      var shared = new VideoPlayer(new VideoLibrary(SyntheticCatalog.get(100_000)),
+          new Output(OutputStream.nullOutputStream()));
+      server = CommandServer.start(shared,
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+          Runtime.getRuntime().availableProcessors());
+      port = server.getPort();
+    }
+
+    List<Socket> idleSockets = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < idle; i++) {
+      var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      readReply(socket.getInputStream());
+      idleSockets.add(socket);
+    }
+    System.out.printf(Locale.ROOT, "Opened %d idle connections in %.1f s%n", idle,
+        (System.nanoTime() - start) / 1e9);
+
+    var latency = new LatencyHistogram();
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    List<Future<?>> done = new ArrayList<>();
+    int serverPort = port;
+    start = System.nanoTime();
+    for (int c = 0; c < clients; c++)
+      done.add(pool.submit(() -> {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), serverPort)) {
+          InputStream in = new BufferedInputStream(socket.getInputStream());
+          OutputStream out = socket.getOutputStream();
+          readReply(in);
+          for (int i = 0; i < commands; i++) {
+            byte[] command = (COMMANDS[i % COMMANDS.length] + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+            long sent = System.nanoTime();
+            out.write(command);
+            readReply(in);
+            latency.record(System.nanoTime() - sent);
+          }
+        }
+        return null;
+      }));
+    for (Future<?> future : done)
+      future.get();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    pool.shutdown();
+
+    System.out.printf(Locale.ROOT,
+        "%d clients, %d commands in %.1f s (%.0f commands/sec), p50 %.1f us, p99 %.1f us%n",
+        clients, latency.count(), seconds, latency.count() / seconds,
+        latency.percentile(50) / 1e3, latency.percentile(99) / 1e3);
+    if (server != null) {
+      LatencyHistogram served = server.getLatency();
+      System.out.printf(Locale.ROOT, "server: %d connections, p50 %.1f us, p99 %.1f us%n",
+          server.getConnections(), served.percentile(50) / 1e3, served.percentile(99) / 1e3);
+    }
+
+    for (Socket socket : idleSockets)
+      socket.close();
+    if (server != null)
+      server.close();
+  }
+
+  private static void readReply(InputStream in) throws IOException {
+    byte[] prompt = CommandServer.PROMPT.getBytes(StandardCharsets.UTF_8);
+    int matched = 0;
+    while (matched < prompt.length) {
+      int b = in.read();
+      if (b < 0)
+        throw new IOException("Connection closed");
+      matched = b == prompt[matched] ? matched + 1 : (b == prompt[0] ? 1 : 0);
+    }
+  }
+}
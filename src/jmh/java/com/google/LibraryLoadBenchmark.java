@@ -0,0 +1,69 @@
+package com.google;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading a catalog, either from text or by mapping a snapshot of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LibraryLoadBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  int size;
+
+  private Path catalog;
+  private Path snapshot;
+
+  @Setup
+  public void setUp() throws IOException {
+    catalog = SyntheticCatalog.get(size);
+    snapshot = catalog.resolveSibling(catalog.getFileName() + ".snapshot");
+    if (Snapshot.open(snapshot, catalog) == null)
+      Snapshot.write(snapshot, catalog, new VideoLibrary(catalog, ForkJoinPool.commonPool()),
+          new PlaylistRegistry());
+  }
+
+  @Benchmark
+  public VideoLibrary loadSequential() {
+    return new VideoLibrary(catalog);
+  }
+
+  @Benchmark
+  public VideoLibrary loadParallel() {
+    return new VideoLibrary(catalog, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public VideoLibrary loadCompact() {
+    return new VideoLibrary(catalog, ForkJoinPool.commonPool(), new CompactCatalog.Builder());
+  }
+
+  @Benchmark
+  public VideoLibrary openSnapshot() throws IOException {
+    return Snapshot.open(snapshot, catalog).getLibrary();
+  }
+
+  @Benchmark
+  public VideoLibrary loadOffHeap() {
+    return new VideoLibrary(catalog, ForkJoinPool.commonPool(), new OffHeapCatalog.Builder());
+  }
+}
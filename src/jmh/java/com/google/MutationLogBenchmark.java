@@ -0,0 +1,57 @@
+package com.google;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures logging flag changes under each sync policy with several writers, where
+ * {@code ALWAYS} relies on group commit to share forces between them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(8)
+@Fork(1)
+public class MutationLogBenchmark {
+
+  @Param({"ALWAYS", "INTERVAL", "OS"})
+  String policy;
+
+  private Path path;
+  private MutationLog log;
+
+  @Setup
+  public void setUp() throws IOException {
+    path = Files.createTempFile("mutation", ".log");
+    Files.delete(path);
+    log = MutationLog.open(path, MutationLog.SyncPolicy.valueOf(policy), 100);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    log.close();
+    Files.delete(path);
+  }
+
+  @Benchmark
+  public void flagVideo() {
+    log.flagVideo("video_1_id", "benchmark");
+  }
+}
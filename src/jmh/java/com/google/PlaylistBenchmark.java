@@ -0,0 +1,63 @@
+package com.google;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the playlist commands of {@link VideoPlayer} on a playlist of a given length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaylistBenchmark {
+
+  private static final int CATALOG_SIZE = 100_000;
+  private static final String PLAYLIST = "benchmark_playlist";
+
+  @Param({"10", "1000", "50000"})
+  int playlistSize;
+
+  private VideoPlayer videoPlayer;
+  private String outsideVideoId;
+
+  @Setup
+  public void setUp() throws IOException {
+    videoPlayer = new VideoPlayer(new VideoLibrary(SyntheticCatalog.get(CATALOG_SIZE)),
+        new Output(OutputStream.nullOutputStream()));
+    videoPlayer.createPlaylist(PLAYLIST);
+    for (int i = 0; i < playlistSize; i++)
+      videoPlayer.addVideoToPlaylist(PLAYLIST, "video_" + i + "_id");
+    outsideVideoId = "video_" + playlistSize + "_id";
+  }
+
+  @Benchmark
+  public void addThenRemove() {
+    videoPlayer.addVideoToPlaylist(PLAYLIST, outsideVideoId);
+    videoPlayer.removeFromPlaylist(PLAYLIST, outsideVideoId);
+  }
+
+  @Benchmark
+  public void addExisting() {
+    videoPlayer.addVideoToPlaylist(PLAYLIST, "video_0_id");
+  }
+
+  @Benchmark
+  public void showPlaylist() {
+    videoPlayer.showPlaylist(PLAYLIST);
+  }
+}
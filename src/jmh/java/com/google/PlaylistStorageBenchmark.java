@@ -0,0 +1,79 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the old {@code ArrayList} playlist storage with the {@code LinkedHashSet} used by
+ * {@link VideoPlaylist}, to find the playlist length at which the set starts to win.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaylistStorageBenchmark {
+
+  @Param({"4", "16", "64", "256", "1024", "16384", "50000"})
+  int playlistSize;
+
+  private List<Video> list;
+  private LinkedHashSet<Video> set;
+  private Video middle;
+  private Video outside;
+
+  @Setup
+  public void setUp() {
+    list = new ArrayList<>();
+    set = new LinkedHashSet<>();
+    var dictionary = new TagDictionary();
+    for (int i = 0; i < playlistSize; i++) {
+      Video video = new Video("Video " + i, "video_" + i + "_id", List.of(), dictionary);
+      list.add(video);
+      set.add(video);
+    }
+    middle = list.get(playlistSize / 2);
+    outside = new Video("Outside", "outside_id", List.of(), dictionary);
+  }
+
+  @Benchmark
+  public boolean listContains() {
+    return list.contains(outside);
+  }
+
+  @Benchmark
+  public boolean setContains() {
+    return set.contains(outside);
+  }
+
+  @Benchmark
+  public void listRemoveAndReAdd(Blackhole blackhole) {
+    removeAndReAdd(list, blackhole);
+  }
+
+  @Benchmark
+  public void setRemoveAndReAdd(Blackhole blackhole) {
+    removeAndReAdd(set, blackhole);
+  }
+
+  private void removeAndReAdd(Collection<Video> videos, Blackhole blackhole) {
+    blackhole.consume(videos.remove(middle));
+    blackhole.consume(videos.add(middle));
+  }
+}
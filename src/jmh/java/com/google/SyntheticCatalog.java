@@ -0,0 +1,58 @@
+package com.google;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates catalog files in the {@code title | id | tags} format for benchmarks.
+ *
+ * <p>Files are deterministic for a given size and cached in the temporary directory, so repeated
+ * runs do not pay for generating a large catalog again.
+ */
+final class SyntheticCatalog {
+
+  static final int TAG_COUNT = 1000;
+
+  private static final String[] WORDS = {
+      "cats", "dogs", "google", "cooking", "music", "travel", "science", "football", "gaming",
+      "history", "nature", "coding", "space", "cars", "fashion", "comedy"};
+
+  private SyntheticCatalog() {
+  }
+
+  /**
+   * Returns the path of a catalog with the given number of videos, generating it if needed.
+   */
+  static synchronized Path get(int size) throws IOException {
+    Path path = Paths.get(System.getProperty("java.io.tmpdir"), "synthetic-catalog-" + size + ".txt");
+    if (Files.exists(path))
+      return path;
+
+    Path partial = Files.createTempFile("synthetic-catalog-", ".tmp");
+    Random random = new Random(size);
+    try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < size; i++) {
+        writer.write(String.format("Video %d about %s and %s | video_%d_id | ",
+            i, word(random), word(random), i));
+        int tags = random.nextInt(4);
+        for (int t = 0; t < tags; t++) {
+          if (t > 0)
+            writer.write(" , ");
+          writer.write("#tag" + random.nextInt(TAG_COUNT));
+        }
+        writer.newLine();
+      }
+    }
+    Files.move(partial, path);
+    return path;
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
@@ -0,0 +1,80 @@
+package com.google;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the catalog-wide commands of {@link VideoPlayer} with its output discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VideoPlayerBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  int size;
+
+  private SharedCatalog catalog;
+  private VideoPlayer videoPlayer;
+
+  @Setup
+  public void setUp() throws IOException {
+    VideoLibrary videoLibrary = new VideoLibrary(SyntheticCatalog.get(size));
+    catalog = videoLibrary.getSharedCatalog();
+    videoPlayer = new VideoPlayer(videoLibrary, new Output(OutputStream.nullOutputStream()));
+  }
+
+  /**
+   * Creates a session with its own flags and playlists over the loaded catalog. Run with
+   * {@code -prof gc} to see that it allocates the same few hundred bytes at every size.
+   */
+  @Benchmark
+  public VideoPlayer createSession() {
+    return new VideoPlayer(new VideoLibrary(catalog), new Output(OutputStream.nullOutputStream()));
+  }
+
+  @Benchmark
+  public void numberOfVideos() {
+    videoPlayer.numberOfVideos();
+  }
+
+  @Benchmark
+  public void searchVideosCommonTerm() {
+    videoPlayer.searchVideos("cats");
+  }
+
+  @Benchmark
+  public void searchVideosRareTerm() {
+    videoPlayer.searchVideos("video 123 about");
+  }
+
+  @Benchmark
+  public void searchVideosWithTag() {
+    videoPlayer.searchVideosWithTag("#tag42");
+  }
+
+  @Benchmark
+  public void playRandomVideo() {
+    videoPlayer.playRandomVideo();
+  }
+
+  @Benchmark
+  public void showAllVideos() {
+    videoPlayer.showAllVideos();
+  }
+}
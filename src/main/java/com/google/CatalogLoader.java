@@ -0,0 +1,188 @@
+package com.google;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * A class used to load a catalog of videos in the {@code title | id | tags} format.
+ *
+ * <p>The file is memory-mapped and scanned byte by byte, so fields are located by offset and
+ * decoded straight into their final strings without regex splitting or intermediate substrings.
+ * Tags are interned into the {@link TagDictionary} of the catalog being loaded as they are read, so
+ * a video keeps only their ids.
+ */
+class CatalogLoader {
+
+  /**
+   * Largest region mapped at once. Files bigger than this are mapped in newline-aligned windows.
+   */
+  static final int MAX_WINDOW = 1 << 30;
+
+  private static final byte FIELD_SEPARATOR = '|';
+  private static final byte TAG_SEPARATOR = ',';
+  private static final byte NEWLINE = '\n';
+
+  /**
+   * Number of chunks handed to each worker of the pool, so uneven lines still balance out.
+   */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private final TagDictionary dictionary;
+  private byte[] scratch = new byte[256];
+  private final IntList tagIds = new IntList();
+
+  /**
+   * Creates a loader that interns tags into the given dictionary.
+   */
+  CatalogLoader(TagDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Maps the given file and passes every video it contains to the sink, in file order.
+   */
+  void load(Path path, Consumer<Video> sink) throws IOException {
+    load(path, MAX_WINDOW, sink);
+  }
+
+  void load(Path path, int window, Consumer<Video> sink) throws IOException {
+    forEachWindow(path, window, (buffer, end) -> parse(buffer, 0, end, sink));
+  }
+
+  /**
+   * Maps the given file and parses newline-aligned chunks of it on the pool. Videos are still
+   * passed to the sink on the calling thread and in file order, so the result is identical to
+   * {@link #load(Path, Consumer)}.
+   */
+  static void loadParallel(Path path, ForkJoinPool pool, TagDictionary dictionary,
+      Consumer<Video> sink) throws IOException {
+    loadParallel(path, MAX_WINDOW, pool, dictionary, sink);
+  }
+
+  static void loadParallel(Path path, int window, ForkJoinPool pool, TagDictionary dictionary,
+      Consumer<Video> sink) throws IOException {
+    forEachWindow(path, window, (buffer, end) -> {
+      List<ForkJoinTask<List<Video>>> chunks = new ArrayList<>();
+      int chunkSize = Math.max(1, end / (pool.getParallelism() * CHUNKS_PER_WORKER));
+      int chunkStart = 0;
+      while (chunkStart < end) {
+        int chunkEnd = chunkStart + chunkSize >= end
+            ? end
+            : Math.min(end, indexOf(buffer, NEWLINE, chunkStart + chunkSize, end) + 1);
+        int from = chunkStart;
+        chunks.add(pool.submit(() -> {
+          List<Video> videos = new ArrayList<>();
+          new CatalogLoader(dictionary).parse(buffer, from, chunkEnd, videos::add);
+          return videos;
+        }));
+        chunkStart = chunkEnd;
+      }
+      for (ForkJoinTask<List<Video>> chunk : chunks)
+        chunk.join().forEach(sink);
+    });
+  }
+
+  /**
+   * Parses every line in {@code [from, to)} of the buffer. The range must start at a line boundary.
+   */
+  void parse(ByteBuffer buffer, int from, int to, Consumer<Video> sink) {
+    int lineStart = from;
+    while (lineStart < to) {
+      int lineEnd = indexOf(buffer, NEWLINE, lineStart, to);
+      parseLine(buffer, lineStart, lineEnd, sink);
+      lineStart = lineEnd + 1;
+    }
+  }
+
+  private void parseLine(ByteBuffer buffer, int start, int end, Consumer<Video> sink) {
+    int titleEnd = indexOf(buffer, FIELD_SEPARATOR, start, end);
+    if (titleEnd == end)
+      return; // blank or malformed line
+    int idEnd = indexOf(buffer, FIELD_SEPARATOR, titleEnd + 1, end);
+    String title = decodeStripped(buffer, start, titleEnd);
+    String id = decodeStripped(buffer, titleEnd + 1, idEnd);
+    tagIds.clear();
+    if (idEnd < end) {
+      int tagsEnd = indexOf(buffer, FIELD_SEPARATOR, idEnd + 1, end);
+      int tagStart = idEnd + 1;
+      while (tagStart <= tagsEnd) {
+        int tagEnd = indexOf(buffer, TAG_SEPARATOR, tagStart, tagsEnd);
+        String tag = decodeStripped(buffer, tagStart, tagEnd);
+        if (!tag.isEmpty())
+          tagIds.add(dictionary.intern(tag));
+        tagStart = tagEnd + 1;
+      }
+    }
+    sink.accept(new Video(title, id, tagIds.toArray(), dictionary));
+  }
+
+  private String decodeStripped(ByteBuffer buffer, int start, int end) {
+    while (start < end && isWhitespace(buffer.get(start)))
+      start++;
+    while (end > start && isWhitespace(buffer.get(end - 1)))
+      end--;
+    int length = end - start;
+    if (length == 0)
+      return "";
+    if (scratch.length < length)
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    for (int i = 0; i < length; i++)
+      scratch[i] = buffer.get(start + i);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  // helper methods
+  private interface WindowHandler {
+    void handle(MappedByteBuffer buffer, int end);
+  }
+
+  /**
+   * Maps the file window by window. Each window is cut back to its last newline, so the handler
+   * always sees whole lines in {@code [0, end)}.
+   */
+  private static void forEachWindow(Path path, int window, WindowHandler handler)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        long length = Math.min(window, size - position);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        boolean last = position + length == size;
+        int end = last ? (int) length : lastNewline(buffer, (int) length) + 1;
+        if (end == 0)
+          throw new IOException("Catalog line at offset " + position + " exceeds mapping window");
+        handler.handle(buffer, end);
+        position += end;
+      }
+    }
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+  }
+
+  private static int indexOf(ByteBuffer buffer, byte target, int from, int to) {
+    for (int i = from; i < to; i++)
+      if (buffer.get(i) == target)
+        return i;
+    return to;
+  }
+
+  private static int lastNewline(ByteBuffer buffer, int length) {
+    for (int i = length - 1; i >= 0; i--)
+      if (buffer.get(i) == NEWLINE)
+        return i;
+    return -1;
+  }
+}
@@ -0,0 +1,141 @@
+package com.google;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A class used to execute a stream of commands without prompts.
+ *
+ * <p>Parsing is pipelined with execution. A reader thread decodes the input through a large
+ * buffer, splits each line into tokens and looks up its verb, and hands the parsed commands over
+ * in batches through a bounded queue, while the calling thread only executes them, in order.
+ * Execution stops at the end of the input or at an {@code EXIT} line.
+ */
+final class CommandBatch {
+
+  static final int BATCH_SIZE = 4096;
+
+  private static final int QUEUE_CAPACITY = 16;
+  private static final int READ_BUFFER_SIZE = 1 << 20;
+  private static final CommandParser.Command[] END = new CommandParser.Command[0];
+
+  private final CommandParser parser;
+  private final BlockingQueue<CommandParser.Command[]> queue =
+      new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private volatile IOException readFailure;
+  private long executed;
+
+  CommandBatch(CommandParser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Executes every command of the input in order and returns how many were executed, not
+   * counting a final {@code EXIT}. The input is decoded with the default charset, as the
+   * interactive prompt does, and is closed once read.
+   */
+  long run(InputStream in) throws IOException {
+    var reader = new Thread(() -> read(in), "command-reader");
+    reader.setDaemon(true);
+    reader.start();
+    try {
+      while (true) {
+        CommandParser.Command[] commands = take();
+        if (commands == END)
+          break;
+        for (CommandParser.Command command : commands) {
+          if (command.isExit())
+            return executed;
+          parser.execute(command);
+          executed++;
+        }
+      }
+      if (readFailure != null)
+        throw readFailure;
+      return executed;
+    } finally {
+      reader.interrupt();
+    }
+  }
+
+  /**
+   * Returns the number of commands executed so far.
+   */
+  long executed() {
+    return executed;
+  }
+
+  // helper methods
+  private void read(InputStream in) {
+    try (var lines = new BufferedReader(
+        new InputStreamReader(in, Charset.defaultCharset()), READ_BUFFER_SIZE)) {
+      var batch = new CommandParser.Command[BATCH_SIZE];
+      int size = 0;
+      for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+        batch[size++] = CommandParser.parse(line);
+        if (size == BATCH_SIZE) {
+          queue.put(batch);
+          batch = new CommandParser.Command[BATCH_SIZE];
+          size = 0;
+        }
+      }
+      if (size > 0)
+        queue.put(Arrays.copyOf(batch, size));
+    } catch (IOException e) {
+      readFailure = e;
+    } catch (InterruptedException e) {
+      // execution stopped early; nobody is waiting for more lines
+      return;
+    }
+    try {
+      queue.put(END);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private CommandParser.Command[] take() {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for commands", e);
+    }
+  }
+
+  /**
+   * A buffer in front of standard output that only writes when full or when drained. Replies
+   * are flushed after every command, which in batch mode would cost a write per command.
+   */
+  static final class DeferredStdout extends BufferedOutputStream {
+
+    DeferredStdout() {
+      super(new FileOutputStream(FileDescriptor.out), 1 << 16);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Writes out everything buffered.
+     */
+    void drain() {
+      try {
+        super.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -1,162 +1,262 @@
 package com.google;
 
-import java.util.List;
-
 /**
  * A class used to parse and execute a user Command.
+ *
+ * <p>Lines are split by a reused {@link CommandTokenizer} and the verb is looked up in a table
+ * hashed once at class load, so dispatching a command makes no regex, list or upper-cased copy.
+ * Missing arguments are found by counting tokens rather than by catching exceptions. Parsing a
+ * line needs no player, so {@link #parse(String)} lets another thread parse lines ahead of the
+ * one executing them.
  */
 class CommandParser {
 
+  private enum Verb {
+    NUMBER_OF_VIDEOS, SHOW_ALL_VIDEOS, PLAY, PLAY_RANDOM, STOP, PAUSE, CONTINUE, SHOW_PLAYING,
+    CREATE_PLAYLIST, ADD_TO_PLAYLIST, REMOVE_FROM_PLAYLIST, CLEAR_PLAYLIST, DELETE_PLAYLIST,
+    SHOW_PLAYLIST, SHOW_ALL_PLAYLISTS, SEARCH_VIDEOS, SEARCH_VIDEOS_WITH_TAG, PLAY_RESULT,
+    QUERY_TAGS, FLAG_VIDEO, ALLOW_VIDEO, SHOW_FLAGGED_VIDEOS, HELP
+  }
+
+  // open-addressing table of verbs by the hash of their names, kept at most a quarter full
+  private static final Verb[] VERBS = new Verb[64];
+
+  static {
+    for (Verb verb : Verb.values()) {
+      int slot = CommandTokenizer.hashUpperCase(verb.name()) & (VERBS.length - 1);
+      while (VERBS[slot] != null)
+        slot = (slot + 1) & (VERBS.length - 1);
+      VERBS[slot] = verb;
+    }
+  }
+
   private final VideoPlayer videoPlayer;
+  private final Output out;
+  private final CommandTokenizer tokenizer = new CommandTokenizer();
 
+  /**
+   * Creates a parser for the given player. Usage messages go to the player's output, so they
+   * stay in order with its replies.
+   */
   CommandParser(VideoPlayer videoPlayer) {
     this.videoPlayer = videoPlayer;
+    this.out = videoPlayer.getOutput();
+  }
+
+  /**
+   * Splits a line into tokens and looks up its verb, without executing it.
+   */
+  static Command parse(String line) {
+    var tokens = new CommandTokenizer().tokenize(line);
+    return new Command(tokens, tokens.size() > 0 ? lookup(tokens) : null,
+        line.equalsIgnoreCase("exit"));
+  }
+
+  /**
+   * Executes the given user command line. Tokens are separated by whitespace and the command
+   * name is case-insensitive.
+   */
+  public void executeCommand(String line) {
+    tokenizer.tokenize(line);
+    execute(tokenizer, tokenizer.size() > 0 ? lookup(tokenizer) : null);
+  }
+
+  /**
+   * Executes a command parsed by {@link #parse(String)}.
+   */
+  void execute(Command command) {
+    execute(command.tokens, command.verb);
   }
 
   /**
-   * Executes the given user command.
+   * A command line split into tokens with its verb looked up, ready to execute.
    */
-  public void executeCommand(List<String> command) {
-    if (command.isEmpty()) {
-      System.out.println(
-          "Please enter a valid command, " +
-              "type HELP for a list of available commands.");
+  static final class Command {
+    private final CommandTokenizer tokens;
+    private final Verb verb;
+    private final boolean exit;
+
+    private Command(CommandTokenizer tokens, Verb verb, boolean exit) {
+      this.tokens = tokens;
+      this.verb = verb;
+      this.exit = exit;
+    }
+
+    /**
+     * Returns whether the line was {@code EXIT}, in any case, which ends a session rather than
+     * being executed.
+     */
+    boolean isExit() {
+      return exit;
+    }
+  }
+
+  // helper methods
+  private void execute(CommandTokenizer command, Verb verb) {
+    if (verb == null) {
+      reply(
+          "Please enter a valid command, type HELP for a list of "
+          + "available commands.");
       return;
     }
 
-    switch (command.get(0).toUpperCase()) {
-      case "NUMBER_OF_VIDEOS":
+    switch (verb) {
+      case NUMBER_OF_VIDEOS:
         this.videoPlayer.numberOfVideos();
         break;
-      case "SHOW_ALL_VIDEOS":
-        this.videoPlayer.showAllVideos();
+      case SHOW_ALL_VIDEOS:
+        if (command.size() == 1)
+          this.videoPlayer.showAllVideos();
+        else if (command.size() > 2 && command.isInt(1) && command.isInt(2))
+          this.videoPlayer.showAllVideos(command.getInt(1), command.getInt(2));
+        else
+          reply("Please enter SHOW_ALL_VIDEOS command optionally followed by a " +
+              "page number and page size.");
         break;
-      case "PLAY":
-        try {
+      case PLAY:
+        if (command.size() > 1)
           this.videoPlayer.playVideo(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println("Please enter PLAY command followed by video_id.");
-        }
+        else
+          reply("Please enter PLAY command followed by video_id.");
         break;
-      case "PLAY_RANDOM":
+      case PLAY_RANDOM:
         this.videoPlayer.playRandomVideo();
         break;
-      case "STOP":
+      case STOP:
         this.videoPlayer.stopVideo();
         break;
-      case "PAUSE":
+      case PAUSE:
         this.videoPlayer.pauseVideo();
         break;
-      case "CONTINUE":
+      case CONTINUE:
         this.videoPlayer.continueVideo();
         break;
-      case "SHOW_PLAYING":
+      case SHOW_PLAYING:
         this.videoPlayer.showPlaying();
         break;
-      case "CREATE_PLAYLIST":
-        try {
+      case CREATE_PLAYLIST:
+        if (command.size() > 1)
           this.videoPlayer.createPlaylist(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter CREATE_PLAYLIST command followed by a " +
                   "playlist name.");
-        }
         break;
-      case "ADD_TO_PLAYLIST":
-        try {
+      case ADD_TO_PLAYLIST:
+        if (command.size() > 2)
           this.videoPlayer.addVideoToPlaylist(command.get(1), command.get(2));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter ADD_TO_PLAYLIST command followed by a "
                   + "playlist name and video_id to add.");
-        }
         break;
-      case "REMOVE_FROM_PLAYLIST":
-        try {
+      case REMOVE_FROM_PLAYLIST:
+        if (command.size() > 2)
           this.videoPlayer.removeFromPlaylist(command.get(1), command.get(2));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter REMOVE_FROM_PLAYLIST command followed by a "
                   + "playlist name and video_id to remove.");
-        }
         break;
-      case "CLEAR_PLAYLIST":
-        try {
+      case CLEAR_PLAYLIST:
+        if (command.size() > 1)
           this.videoPlayer.clearPlaylist(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter CLEAR_PLAYLIST command followed by a "
                   + "playlist name.");
-        }
         break;
-      case "DELETE_PLAYLIST":
-        try {
+      case DELETE_PLAYLIST:
+        if (command.size() > 1)
           this.videoPlayer.deletePlaylist(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter DELETE_PLAYLIST command followed by a " +
                   "playlist name.");
-        }
         break;
-      case "SHOW_PLAYLIST":
-        try {
+      case SHOW_PLAYLIST:
+        if (command.size() == 2)
           this.videoPlayer.showPlaylist(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println("Please enter SHOW_PLAYLIST command followed by a " +
-              "playlist name.");
-        }
+        else if (command.size() > 3 && command.isInt(2) && command.isInt(3))
+          this.videoPlayer.showPlaylist(command.get(1), command.getInt(2), command.getInt(3));
+        else
+          reply("Please enter SHOW_PLAYLIST command followed by a " +
+              "playlist name and optionally a page number and page size.");
         break;
-      case "SHOW_ALL_PLAYLISTS":
+      case SHOW_ALL_PLAYLISTS:
         this.videoPlayer.showAllPlaylists();
         break;
-      case "SEARCH_VIDEOS":
-        try {
+      case SEARCH_VIDEOS:
+        if (command.size() > 1)
           this.videoPlayer.searchVideos(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println("Please enter SEARCH_VIDEOS command followed by a " +
+        else
+          reply("Please enter SEARCH_VIDEOS command followed by a " +
               "search term.");
-        }
         break;
-      case "SEARCH_VIDEOS_WITH_TAG":
-        try {
+      case SEARCH_VIDEOS_WITH_TAG:
+        if (command.size() > 1)
           this.videoPlayer.searchVideosWithTag(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println(
+        else
+          reply(
               "Please enter SEARCH_VIDEOS_WITH_TAG command followed by a " +
                   "video tag.");
-        }
         break;
-      case "FLAG_VIDEO":
-        try {
+      case PLAY_RESULT:
+        if (command.size() > 1 && command.isInt(1))
+          this.videoPlayer.playResult(command.getInt(1));
+        else
+          reply("Please enter PLAY_RESULT command followed by the number of a " +
+              "search result.");
+        break;
+      case QUERY_TAGS:
+        if (command.size() > 1)
+          this.videoPlayer.queryTags(command.join(1));
+        else
+          reply("Please enter QUERY_TAGS command followed by a " +
+              "tag query.");
+        break;
+      case FLAG_VIDEO:
+        if (command.size() > 2)
           this.videoPlayer.flagVideo(command.get(1), command.get(2));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          try {
-            this.videoPlayer.flagVideo(command.get(1));
-          } catch (ArrayIndexOutOfBoundsException f) {
-            System.out.println("Please enter FLAG_VIDEO command followed by a" +
-                "video_id and an optional flag reason.");
-          }
-        }
-        break;
-      case "ALLOW_VIDEO":
-        try {
+        else if (command.size() == 2)
+          this.videoPlayer.flagVideo(command.get(1));
+        else
+          reply("Please enter FLAG_VIDEO command followed by a" +
+              "video_id and an optional flag reason.");
+        break;
+      case ALLOW_VIDEO:
+        if (command.size() > 1)
           this.videoPlayer.allowVideo(command.get(1));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          System.out.println("Please enter ALLOW_VIDEO command followed by a " +
+        else
+          reply("Please enter ALLOW_VIDEO command followed by a " +
               "video_id.");
-        }
         break;
-      case "HELP":
-        this.getHelp();
+      case SHOW_FLAGGED_VIDEOS:
+        this.videoPlayer.showFlaggedVideos();
         break;
-      default:
-        System.out.println(
-            "Please enter a valid command, type HELP for a list of "
-            + "available commands.");
+      case HELP:
+        this.getHelp();
         break;
     }
   }
 
+  private void reply(String message) {
+    out.println(message);
+    out.flush();
+  }
+
+  /**
+   * Returns the verb named by the first token, ignoring case, or null.
+   */
+  private static Verb lookup(CommandTokenizer command) {
+    int mask = VERBS.length - 1;
+    for (int slot = command.hashUpperCase(0) & mask; VERBS[slot] != null;
+        slot = (slot + 1) & mask)
+      if (command.equalsUpperCase(0, VERBS[slot].name()))
+        return VERBS[slot];
+    return null;
+  }
+
   /**
    * Displays all available commands to the user.
    */
@@ -164,7 +264,7 @@ class CommandParser {
     String helpText =
         "Available commands:\n"
             + "    NUMBER_OF_VIDEOS - Shows how many videos are in the library.\n"
-            + "    SHOW_ALL_VIDEOS - Lists all videos from the library.\n"
+            + "    SHOW_ALL_VIDEOS [<page> <page_size>] - Lists all videos from the library, or one page of them.\n"
             + "    PLAY <video_id> - Plays specified video.\n"
             + "    PLAY_RANDOM - Plays a random video from the library.\n"
             + "    STOP - Stop the current video.\n"
@@ -176,14 +276,17 @@ class CommandParser {
             + "    REMOVE_FROM_PLAYLIST <playlist_name> <video_id> - Removes the specified video from the specified playlist\n"
             + "    CLEAR_PLAYLIST <playlist_name> - Removes all the videos from the playlist.\n"
             + "    DELETE_PLAYLIST <playlist_name> - Deletes the playlist.\n"
-            + "    SHOW_PLAYLIST <playlist_name> - List all the videos in this playlist.\n"
+            + "    SHOW_PLAYLIST <playlist_name> [<page> <page_size>] - List all the videos in this playlist, or one page of them.\n"
             + "    SHOW_ALL_PLAYLISTS - Display all the available playlists.\n"
             + "    SEARCH_VIDEOS <search_term> - Display all the videos whose titles contain the search_term.\n"
             + "    SEARCH_VIDEOS_WITH_TAG <tag_name> -Display all videos whose tags contains the provided tag.\n"
+            + "    PLAY_RESULT <number> - Plays the video with that number in the results of the last search.\n"
+            + "    QUERY_TAGS <tag_query> - Display all videos matching a query of tags combined with AND, OR and NOT.\n"
             + "    FLAG_VIDEO <video_id> <flag_reason> - Mark a video as flagged.\n"
             + "    ALLOW_VIDEO <video_id> - Removes a flag from a video.\n"
+            + "    SHOW_FLAGGED_VIDEOS - Lists all flagged videos and their flag reasons.\n"
             + "    HELP - Displays help.\n"
             + "    EXIT - Terminates the program execution.\n";
-    System.out.println(helpText);
+    reply(helpText);
   }
 }
@@ -0,0 +1,436 @@
+package com.google;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class used to serve the command set over TCP, one UTF-8 line per command.
+ *
+ * <p>One selector thread accepts every connection and does all socket reads, so an idle
+ * connection costs a socket and a few small objects rather than a thread. Each connection is a
+ * session of a shared player, with its own playback state, search results and output, over one
+ * catalog, flag set and playlist registry. Complete lines are queued on their session and
+ * executed on a small worker pool, one at a time per session and in order, so a slow command
+ * never holds up the selector or other sessions. Every reply ends with the {@code YT> } prompt,
+ * which tells a client the reply is complete, and {@code EXIT} closes the connection.
+ *
+ * <p>The latency of each command, from the selector reading its line to its reply being handed
+ * to the socket, is recorded in {@link #getLatency()}.
+ */
+final class CommandServer implements Closeable {
+
+  static final String PROMPT = "YT> ";
+
+  private static final byte[] GREETING = ("Hello and welcome to YouTube, what would you like to "
+      + "do? Enter HELP for list of available commands or EXIT to terminate.\n" + PROMPT)
+      .getBytes(StandardCharsets.UTF_8);
+  private static final String GOODBYE =
+      "YouTube has now terminated its execution. Thank you and goodbye!";
+  private static final int BACKLOG = 4096;
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final int OUTPUT_BUFFER_SIZE = 4096;
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+  private static final int MAX_PENDING_OUTPUT = 1 << 20;
+
+  private final VideoPlayer shared;
+  private final ServerSocketChannel server;
+  private final Selector selector;
+  private final ExecutorService workers;
+  private final Thread selectorThread;
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final AtomicInteger connections = new AtomicInteger();
+  private final int port;
+  private volatile boolean closed;
+
+  private CommandServer(VideoPlayer shared, ServerSocketChannel server, Selector selector,
+      int workers) throws IOException {
+    this.shared = shared;
+    this.server = server;
+    this.selector = selector;
+    this.port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+    this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(runnable, "command-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.selectorThread = new Thread(this::serve, "command-selector");
+  }
+
+  /**
+   * Starts serving sessions of the given player on the address, with the given number of worker
+   * threads. Port 0 picks a free port; see {@link #getPort()}.
+   */
+  static CommandServer start(VideoPlayer shared, InetSocketAddress address, int workers)
+      throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open();
+    Selector selector = null;
+    try {
+      server.bind(address, BACKLOG);
+      server.configureBlocking(false);
+      selector = Selector.open();
+      server.register(selector, SelectionKey.OP_ACCEPT);
+      var commandServer = new CommandServer(shared, server, selector, workers);
+      commandServer.selectorThread.start();
+      return commandServer;
+    } catch (IOException | RuntimeException e) {
+      if (selector != null)
+        selector.close();
+      server.close();
+      throw e;
+    }
+  }
+
+  int getPort() {
+    return port;
+  }
+
+  /**
+   * Returns the number of open connections.
+   */
+  int getConnections() {
+    return connections.get();
+  }
+
+  /**
+   * Returns the latencies of all commands served so far.
+   */
+  LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Stops accepting, closes every connection and waits for running commands to finish.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    selector.wakeup();
+    try {
+      selectorThread.join();
+      workers.shutdown();
+      workers.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // helper methods
+  private void serve() {
+    try {
+      while (!closed) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid())
+            continue;
+          if (key.isAcceptable()) {
+            try {
+              accept();
+            } catch (IOException e) {
+              System.out.println("Couldn't accept connection: " + e.getMessage());
+            }
+            continue;
+          }
+          var session = (Session) key.attachment();
+          try {
+            if (key.isReadable())
+              session.read();
+            if (key.isValid() && key.isWritable())
+              session.write();
+          } catch (IOException e) {
+            session.disconnect();
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("Command server stopped: " + e.getMessage());
+    } finally {
+      for (SelectionKey key : selector.keys())
+        if (key.attachment() != null)
+          ((Session) key.attachment()).disconnect();
+      try {
+        selector.close();
+        server.close();
+      } catch (IOException e) {
+        System.out.println("Couldn't close command server: " + e.getMessage());
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = server.accept()) != null) {
+      try {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        var session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        connections.incrementAndGet();
+        session.send(GREETING, 0, GREETING.length);
+      } catch (IOException e) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * A line received but not yet executed, with the time it was read.
+   */
+  private static final class Line {
+    final String text;
+    final long received;
+
+    Line(String text, long received) {
+      this.text = text;
+      this.received = received;
+    }
+  }
+
+  /**
+   * One connection. Its lock guards the line queue, the pending output and the key's interest
+   * set, which both the selector thread and a worker change.
+   */
+  private final class Session extends OutputStream {
+
+    private final SocketChannel channel;
+    private final VideoPlayer player;
+    private final CommandParser parser;
+    private final ArrayDeque<Line> lines = new ArrayDeque<>();
+    private SelectionKey key;
+    // bytes of a line whose end has not arrived yet
+    private byte[] partial;
+    private int partialLength;
+    // bytes not yet accepted by the socket, allocated only while there are any
+    private ByteBuffer pending;
+    private boolean executing;
+    private boolean closing;
+    private boolean closed;
+
+    Session(SocketChannel channel) {
+      this.channel = channel;
+      this.player = shared.newSession(
+          new Output(this, StandardCharsets.UTF_8, OUTPUT_BUFFER_SIZE));
+      this.parser = new CommandParser(player);
+    }
+
+    /**
+     * Reads what has arrived and queues every complete line. Called on the selector thread.
+     */
+    void read() throws IOException {
+      readBuffer.clear();
+      int read = channel.read(readBuffer);
+      if (read < 0) {
+        disconnect();
+        return;
+      }
+      byte[] bytes = readBuffer.array();
+      long now = System.nanoTime();
+      int start = 0;
+      for (int i = 0; i < read; i++) {
+        if (bytes[i] != '\n')
+          continue;
+        String text;
+        if (partialLength > 0) {
+          appendPartial(bytes, start, i);
+          text = decode(partial, 0, partialLength);
+          partialLength = 0;
+        } else
+          text = decode(bytes, start, i);
+        enqueue(new Line(text, now));
+        start = i + 1;
+      }
+      if (start < read)
+        appendPartial(bytes, start, read);
+      if (partialLength > MAX_LINE_LENGTH) {
+        partialLength = 0;
+        byte[] message = "Command too long\n".getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+          closing = true;
+        }
+        send(message, 0, message.length);
+      }
+    }
+
+    /**
+     * Writes pending output once the socket has room again. Called on the selector thread.
+     */
+    synchronized void write() throws IOException {
+      flushPending();
+    }
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * Collects reply bytes encoded by the session's output.
+     */
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+      if (closed)
+        return;
+      if (pending == null)
+        pending = ByteBuffer.allocate(Math.max(OUTPUT_BUFFER_SIZE, length));
+      else if (pending.remaining() < length) {
+        ByteBuffer larger = ByteBuffer.allocate(
+            Math.max(pending.capacity() * 2, pending.position() + length));
+        pending = larger.put(pending.flip());
+      }
+      pending.put(bytes, offset, length);
+    }
+
+    /**
+     * Sends the bytes collected since the last flush, without waiting for the socket.
+     */
+    @Override
+    public void flush() {
+      send(null, 0, 0);
+    }
+
+    synchronized void disconnect() {
+      if (closed)
+        return;
+      closed = true;
+      lines.clear();
+      pending = null;
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // the connection is gone either way
+      }
+      connections.decrementAndGet();
+    }
+
+    private void enqueue(Line line) {
+      synchronized (this) {
+        if (closing || closed)
+          return;
+        lines.add(line);
+        if (executing)
+          return;
+        executing = true;
+      }
+      workers.execute(this::execute);
+    }
+
+    /**
+     * Executes queued lines in order until none are left. Runs on a worker thread. A command that
+     * throws still gets its prompt, and the next line that arrives starts executing again.
+     */
+    private void execute() {
+      boolean idle = false;
+      try {
+        while (true) {
+          Line line;
+          synchronized (this) {
+            line = lines.poll();
+            if (line == null || closed) {
+              // cleared under the same lock enqueue checks it, so no line is left behind
+              executing = false;
+              idle = true;
+              return;
+            }
+          }
+          if (line.text.equalsIgnoreCase("exit")) {
+            synchronized (this) {
+              closing = true;
+              lines.clear();
+            }
+            player.getOutput().println(GOODBYE).flush();
+            latency.record(System.nanoTime() - line.received);
+            continue;
+          }
+          try {
+            parser.executeCommand(line.text);
+          } finally {
+            player.getOutput().print(PROMPT).flush();
+            latency.record(System.nanoTime() - line.received);
+          }
+        }
+      } finally {
+        if (!idle)
+          synchronized (this) {
+            executing = false;
+          }
+      }
+    }
+
+    private synchronized void send(byte[] bytes, int offset, int length) {
+      if (closed)
+        return;
+      if (bytes != null)
+        write(bytes, offset, length);
+      try {
+        flushPending();
+      } catch (IOException e) {
+        disconnect();
+      }
+    }
+
+    /**
+     * Writes as much pending output as the socket takes, and only waits for the socket to
+     * become writable, or stops reading, while output is left over. Called under the lock.
+     */
+    private void flushPending() throws IOException {
+      if (closed)
+        return;
+      if (pending != null) {
+        pending.flip();
+        channel.write(pending);
+        pending.compact();
+        if (pending.position() == 0)
+          pending = null;
+      }
+      if (pending == null && closing) {
+        disconnect();
+        return;
+      }
+      int ops = SelectionKey.OP_READ;
+      if (pending != null) {
+        ops = pending.position() > MAX_PENDING_OUTPUT ? SelectionKey.OP_WRITE
+            : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+      }
+      if (key.interestOps() != ops) {
+        key.interestOps(ops);
+        selector.wakeup();
+      }
+    }
+
+    private void appendPartial(byte[] bytes, int from, int to) {
+      int length = to - from;
+      if (partial == null)
+        partial = new byte[Math.max(256, length)];
+      else if (partialLength + length > partial.length)
+        partial = Arrays.copyOf(partial, Math.max(partial.length * 2, partialLength + length));
+      System.arraycopy(bytes, from, partial, partialLength, length);
+      partialLength += length;
+    }
+
+    private String decode(byte[] bytes, int from, int to) {
+      if (to > from && bytes[to - 1] == '\r')
+        to--;
+      return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+  }
+}
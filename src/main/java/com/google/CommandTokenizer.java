@@ -0,0 +1,165 @@
+package com.google;
+
+import java.util.Arrays;
+
+/**
+ * A class used to split a command line into whitespace separated tokens.
+ *
+ * <p>Tokens are kept as start and end offsets into the line and only become strings when an
+ * argument is needed, so tokenizing allocates nothing once the offset arrays are large enough.
+ * Splitting matches {@code line.split("\\s+")}: whitespace is space, tab, line feed, vertical
+ * tab, form feed or carriage return, leading whitespace gives an empty first token, and trailing
+ * whitespace gives none. One instance is reused for every line, so it is not thread-safe.
+ */
+final class CommandTokenizer {
+
+  private String line = "";
+  private int[] starts = new int[8];
+  private int[] ends = new int[8];
+  private int size;
+
+  /**
+   * Splits the line, replacing the tokens of the previous line.
+   */
+  CommandTokenizer tokenize(String line) {
+    this.line = line;
+    this.size = 0;
+    int length = line.length();
+    if (length == 0) {
+      add(0, 0);
+      return this;
+    }
+    int i = 0;
+    if (isWhitespace(line.charAt(0))) {
+      while (i < length && isWhitespace(line.charAt(i)))
+        i++;
+      if (i == length)
+        return this;
+      add(0, 0);
+    }
+    while (i < length) {
+      int start = i;
+      while (i < length && !isWhitespace(line.charAt(i)))
+        i++;
+      add(start, i);
+      while (i < length && isWhitespace(line.charAt(i)))
+        i++;
+    }
+    return this;
+  }
+
+  int size() {
+    return size;
+  }
+
+  String get(int index) {
+    checkIndex(index);
+    return line.substring(starts[index], ends[index]);
+  }
+
+  /**
+   * Returns whether a token is a decimal int that {@link Integer#parseInt(String)} accepts.
+   */
+  boolean isInt(int index) {
+    checkIndex(index);
+    int i = starts[index];
+    int end = ends[index];
+    boolean negative = false;
+    if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+'))
+      negative = line.charAt(i++) == '-';
+    if (i == end)
+      return false;
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = Character.digit(line.charAt(i), 10);
+      if (digit < 0)
+        return false;
+      value = value * 10 + digit;
+      if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Parses a token as a decimal int, as {@link Integer#parseInt(String)} does. Check it with
+   * {@link #isInt(int)} first to avoid the exception.
+   */
+  int getInt(int index) {
+    checkIndex(index);
+    return Integer.parseInt(line, starts[index], ends[index], 10);
+  }
+
+  /**
+   * Returns the tokens from the given index on joined by single spaces, as
+   * {@code String.join(" ", tokens)} does.
+   */
+  String join(int from) {
+    checkIndex(from);
+    boolean singleSpaced = true;
+    for (int i = from + 1; i < size && singleSpaced; i++)
+      singleSpaced = starts[i] == ends[i - 1] + 1 && line.charAt(ends[i - 1]) == ' ';
+    if (singleSpaced)
+      return line.substring(starts[from], ends[size - 1]);
+    var joined = new StringBuilder(ends[size - 1] - starts[from]);
+    for (int i = from; i < size; i++) {
+      if (i > from)
+        joined.append(' ');
+      joined.append(line, starts[i], ends[i]);
+    }
+    return joined.toString();
+  }
+
+  /**
+   * Returns the hash of a token upper-cased, equal to {@link #hashUpperCase(String)} of the
+   * upper-cased string.
+   */
+  int hashUpperCase(int index) {
+    checkIndex(index);
+    int hash = 0;
+    for (int i = starts[index]; i < ends[index]; i++)
+      hash = 31 * hash + Character.toUpperCase(line.charAt(i));
+    return hash;
+  }
+
+  /**
+   * Returns whether a token upper-cased equals the given upper-case name.
+   */
+  boolean equalsUpperCase(int index, String name) {
+    checkIndex(index);
+    int start = starts[index];
+    if (ends[index] - start != name.length())
+      return false;
+    for (int i = 0; i < name.length(); i++)
+      if (Character.toUpperCase(line.charAt(start + i)) != name.charAt(i))
+        return false;
+    return true;
+  }
+
+  static int hashUpperCase(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++)
+      hash = 31 * hash + Character.toUpperCase(name.charAt(i));
+    return hash;
+  }
+
+  // helper methods
+  private void add(int start, int end) {
+    if (size == starts.length) {
+      starts = Arrays.copyOf(starts, size * 2);
+      ends = Arrays.copyOf(ends, size * 2);
+    }
+    starts[size] = start;
+    ends[size] = end;
+    size++;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Token " + index + " out of range");
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
@@ -0,0 +1,185 @@
+package com.google;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A catalog stored as parallel primitive arrays indexed by ordinal.
+ *
+ * <p>Titles and ids are UTF-8 bytes in one shared arena, laid out as {@code title id} per video,
+ * and tags are ids into the catalog's dictionary in one flat int array. Lookups by id go through
+ * an open-addressing table of ordinals keyed by the id bytes. The only objects retained per
+ * catalog are these arrays and the dictionary; {@link #get(int)} builds a short-lived
+ * {@link Video} view on demand.
+ */
+class CompactCatalog implements VideoCatalog {
+
+  private final int size;
+  private final byte[] arena;
+  private final int[] titleStarts;
+  private final int[] idStarts;
+  private final int[] idEnds;
+  private final int[] tagStarts;
+  private final int[] tagEnds;
+  private final int[] tagIds;
+  private final int[] idTable;
+  private final TagDictionary dictionary;
+
+  private CompactCatalog(Builder builder) {
+    size = builder.size;
+    arena = Arrays.copyOf(builder.arena, builder.arenaLength);
+    titleStarts = Arrays.copyOf(builder.titleStarts, size);
+    idStarts = Arrays.copyOf(builder.idStarts, size);
+    idEnds = Arrays.copyOf(builder.idEnds, size);
+    tagStarts = Arrays.copyOf(builder.tagStarts, size);
+    tagEnds = Arrays.copyOf(builder.tagEnds, size);
+    tagIds = Arrays.copyOf(builder.tagIds, builder.tagLength);
+    idTable = builder.idTable;
+    dictionary = builder.dictionary;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Video get(int ordinal) {
+    if (ordinal < 0 || ordinal >= size)
+      throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of range");
+    String title = new String(arena, titleStarts[ordinal],
+        idStarts[ordinal] - titleStarts[ordinal], StandardCharsets.UTF_8);
+    String videoId = new String(arena, idStarts[ordinal],
+        idEnds[ordinal] - idStarts[ordinal], StandardCharsets.UTF_8);
+    int[] videoTags = Arrays.copyOfRange(tagIds, tagStarts[ordinal], tagEnds[ordinal]);
+    return new Video(title, videoId, videoTags, dictionary, ordinal);
+  }
+
+  @Override
+  public int ordinalOf(String videoId) {
+    byte[] id = videoId.getBytes(StandardCharsets.UTF_8);
+    return find(idTable, arena, idStarts, idEnds, id, 0, id.length);
+  }
+
+  @Override
+  public TagDictionary tagDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public Builder newBuilder() {
+    return new Builder();
+  }
+
+  // helper methods
+  private static int hash(byte[] bytes, int from, int to) {
+    int hash = 1;
+    for (int i = from; i < to; i++)
+      hash = 31 * hash + bytes[i];
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the ordinal whose id equals {@code key[from, to)}, or -1. Slots hold ordinal + 1.
+   */
+  private static int find(int[] table, byte[] arena, int[] idStarts, int[] idEnds,
+      byte[] key, int from, int to) {
+    int mask = table.length - 1;
+    for (int slot = hash(key, from, to) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int ordinal = table[slot] - 1;
+      if (Arrays.equals(arena, idStarts[ordinal], idEnds[ordinal], key, from, to))
+        return ordinal;
+    }
+    return -1;
+  }
+
+  static class Builder implements VideoCatalog.Builder {
+    private int size;
+    private byte[] arena = new byte[1024];
+    private int arenaLength;
+    private int[] titleStarts = new int[64];
+    private int[] idStarts = new int[64];
+    private int[] idEnds = new int[64];
+    private int[] tagStarts = new int[64];
+    private int[] tagEnds = new int[64];
+    private int[] tagIds = new int[256];
+    private int tagLength;
+    private int[] idTable = new int[128];
+    private final TagDictionary dictionary = new TagDictionary();
+
+    @Override
+    public TagDictionary tagDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public boolean add(Video video) {
+      int titleStart = append(video.getTitle().getBytes(StandardCharsets.UTF_8));
+      int idStart = append(video.getVideoId().getBytes(StandardCharsets.UTF_8));
+      int idEnd = arenaLength;
+      int tagStart = tagLength;
+      int[] videoTags = video.getTagIds(dictionary);
+      if (tagLength + videoTags.length > tagIds.length)
+        tagIds = Arrays.copyOf(tagIds, Math.max(tagIds.length * 2, tagLength + videoTags.length));
+      System.arraycopy(videoTags, 0, tagIds, tagLength, videoTags.length);
+      tagLength += videoTags.length;
+
+      // a duplicate id repoints the existing ordinal at the new bytes
+      int ordinal = find(idTable, arena, idStarts, idEnds, arena, idStart, idEnd);
+      boolean added = ordinal < 0;
+      if (added) {
+        ordinal = size++;
+        if (ordinal == titleStarts.length) {
+          titleStarts = Arrays.copyOf(titleStarts, ordinal * 2);
+          idStarts = Arrays.copyOf(idStarts, ordinal * 2);
+          idEnds = Arrays.copyOf(idEnds, ordinal * 2);
+          tagStarts = Arrays.copyOf(tagStarts, ordinal * 2);
+          tagEnds = Arrays.copyOf(tagEnds, ordinal * 2);
+        }
+      }
+      titleStarts[ordinal] = titleStart;
+      idStarts[ordinal] = idStart;
+      idEnds[ordinal] = idEnd;
+      tagStarts[ordinal] = tagStart;
+      tagEnds[ordinal] = tagLength;
+      if (added)
+        insert(ordinal);
+      video.setOrdinal(ordinal);
+      return added;
+    }
+
+    @Override
+    public VideoCatalog build() {
+      return new CompactCatalog(this);
+    }
+
+    private int append(byte[] bytes) {
+      if (arenaLength + bytes.length > arena.length)
+        arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + bytes.length));
+      int start = arenaLength;
+      System.arraycopy(bytes, 0, arena, start, bytes.length);
+      arenaLength += bytes.length;
+      return start;
+    }
+
+    private void insert(int ordinal) {
+      // keep the table at most half full
+      if (size * 2 > idTable.length) {
+        int[] old = idTable;
+        idTable = new int[old.length * 2];
+        for (int entry : old)
+          if (entry != 0)
+            place(entry - 1);
+      }
+      place(ordinal);
+    }
+
+    private void place(int ordinal) {
+      int mask = idTable.length - 1;
+      int slot = hash(arena, idStarts[ordinal], idEnds[ordinal]) & mask;
+      while (idTable[slot] != 0)
+        slot = (slot + 1) & mask;
+      idTable[slot] = ordinal + 1;
+    }
+  }
+}
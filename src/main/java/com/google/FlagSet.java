@@ -0,0 +1,89 @@
+package com.google;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A class used to hold the flagged videos of a library.
+ *
+ * <p>Flagged ordinals are bits in an array of words, so checking a search result is a shift and
+ * a mask with no boxing, and listing the flagged videos scans words rather than a hash table.
+ * The reason of each flag is kept apart in a map that is only touched for flagged videos. The
+ * words are only allocated when the first video is flagged. Reads take no lock; changes must be
+ * made under one lock held by the caller.
+ */
+final class FlagSet {
+
+  private final int capacity;
+  private final Map<Integer, String> reasons = new ConcurrentHashMap<>();
+  private volatile AtomicLongArray words;
+  private volatile int count;
+
+  /**
+   * Creates an empty set for ordinals {@code 0} to {@code capacity - 1}.
+   */
+  FlagSet(int capacity) {
+    this.capacity = capacity;
+  }
+
+  boolean contains(int ordinal) {
+    AtomicLongArray words = this.words;
+    return words != null && (words.get(ordinal >>> 6) & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Returns the reason the ordinal was flagged, or null if it is not flagged.
+   */
+  String reason(int ordinal) {
+    return contains(ordinal) ? reasons.get(ordinal) : null;
+  }
+
+  int size() {
+    return count;
+  }
+
+  boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Flags an ordinal. Returns false, changing nothing, if it is already flagged.
+   */
+  boolean add(int ordinal, String reason) {
+    if (contains(ordinal))
+      return false;
+    if (words == null)
+      words = new AtomicLongArray((capacity + 63) >>> 6);
+    reasons.put(ordinal, reason);
+    words.set(ordinal >>> 6, words.get(ordinal >>> 6) | (1L << ordinal));
+    count++;
+    return true;
+  }
+
+  /**
+   * Removes the flag from an ordinal. Returns false if it was not flagged.
+   */
+  boolean remove(int ordinal) {
+    if (!contains(ordinal))
+      return false;
+    words.set(ordinal >>> 6, words.get(ordinal >>> 6) & ~(1L << ordinal));
+    reasons.remove(ordinal);
+    count--;
+    return true;
+  }
+
+  /**
+   * Returns the flagged ordinals in ascending order.
+   */
+  int[] toArray() {
+    AtomicLongArray words = this.words;
+    if (words == null)
+      return new int[0];
+    var ordinals = new IntList(count);
+    for (int i = 0; i < words.length(); i++)
+      for (long word = words.get(i); word != 0; word &= word - 1)
+        ordinals.add((i << 6) + Long.numberOfTrailingZeros(word));
+    return ordinals.toArray();
+  }
+}
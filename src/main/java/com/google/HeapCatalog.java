@@ -0,0 +1,86 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A catalog that keeps every video as an object on the heap.
+ */
+class HeapCatalog implements VideoCatalog {
+
+  private final List<Video> videos;
+  private final Map<String, Video> byId;
+  private final TagDictionary dictionary;
+
+  private HeapCatalog(Builder builder) {
+    this.videos = builder.videos;
+    this.byId = builder.byId;
+    this.dictionary = builder.dictionary;
+  }
+
+  @Override
+  public int size() {
+    return videos.size();
+  }
+
+  @Override
+  public Video get(int ordinal) {
+    return videos.get(ordinal);
+  }
+
+  @Override
+  public int ordinalOf(String videoId) {
+    Video video = byId.get(videoId);
+    return video != null ? video.getOrdinal() : -1;
+  }
+
+  @Override
+  public TagDictionary tagDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public List<Video> asList() {
+    return Collections.unmodifiableList(videos);
+  }
+
+  static class Builder implements VideoCatalog.Builder {
+    private final List<Video> videos = new ArrayList<>();
+    private final Map<String, Video> byId = new HashMap<>();
+    private final TagDictionary dictionary = new TagDictionary();
+
+    @Override
+    public TagDictionary tagDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public boolean add(Video video) {
+      if (video.getTagDictionary() != dictionary)
+        video = new Video(video.getTitle(), video.getVideoId(), video.getTagIds(dictionary),
+            dictionary);
+      Video previous = byId.put(video.getVideoId(), video);
+      if (previous != null) {
+        video.setOrdinal(previous.getOrdinal());
+        videos.set(previous.getOrdinal(), video);
+        return false;
+      }
+      video.setOrdinal(videos.size());
+      videos.add(video);
+      return true;
+    }
+
+    @Override
+    public VideoCatalog build() {
+      return new HeapCatalog(this);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.google;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used for posting lists of video ordinals.
+ */
+class IntList {
+
+  private int[] values;
+  private int size;
+
+  IntList() {
+    this(8);
+  }
+
+  IntList(int capacity) {
+    values = new int[Math.max(1, capacity)];
+  }
+
+  void add(int value) {
+    if (size == values.length)
+      values = Arrays.copyOf(values, size * 2);
+    values[size++] = value;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Returns the last value added, or -1 if the list is empty.
+   */
+  int last() {
+    return size == 0 ? -1 : values[size - 1];
+  }
+
+  /**
+   * Returns a copy of the values trimmed to the size of the list.
+   */
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,75 @@
+package com.google;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A class used to record latencies from many threads and read percentiles from them.
+ *
+ * <p>Values are counted in buckets whose width doubles every {@code 16} buckets, so any value
+ * from 16 ns up is placed within about 6% of its size, in a fixed array of counters. Recording
+ * is a single atomic increment and never allocates.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+  /**
+   * Records one latency in nanoseconds. Negative values count as zero.
+   */
+  void record(long nanos) {
+    counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+  }
+
+  /**
+   * Returns the number of latencies recorded.
+   */
+  long count() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++)
+      count += counts.get(i);
+    return count;
+  }
+
+  /**
+   * Returns a latency in nanoseconds that at least the given percentage of recorded latencies do
+   * not exceed, rounded up to the end of its bucket, or 0 if nothing was recorded.
+   */
+  long percentile(double percent) {
+    if (percent < 0 || percent > 100)
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    long[] snapshot = new long[counts.length()];
+    long total = 0;
+    for (int i = 0; i < snapshot.length; i++)
+      total += snapshot[i] = counts.get(i);
+    if (total == 0)
+      return 0;
+    long target = Math.max(1, (long) Math.ceil(percent / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= target)
+        return highestIn(i);
+    }
+    return highestIn(snapshot.length - 1);
+  }
+
+  // helper methods
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long highestIn(int index) {
+    if (index < SUB_BUCKETS)
+      return index;
+    int shift = index / SUB_BUCKETS - 1;
+    long sub = index % SUB_BUCKETS;
+    return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,464 @@
+package com.google;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * A class used to make playlist and flag changes durable in an append-only log.
+ *
+ * <p>The file starts with {@code magic version}, followed by one record per change:
+ * {@code length crc op fields...}, where strings are a length and UTF-8 bytes. A crash can only
+ * leave a torn record at the end; opening the log cuts it off at the last record whose checksum
+ * holds. When records reach the disk depends on the {@link SyncPolicy}:
+ * <ul>
+ *   <li>{@code ALWAYS}: a change returns once it is forced to disk. Changes made meanwhile by
+ *   other threads are forced with it, so concurrent writers share one fsync (group commit).</li>
+ *   <li>{@code INTERVAL}: a change is written to the file at once and a background thread
+ *   forces the file every interval, so a machine crash loses at most that much.</li>
+ *   <li>{@code OS}: a change is written to the file and never forced; the OS decides.</li>
+ * </ul>
+ * The log is replayed onto the state it was written against, normally the last {@link Snapshot}.
+ * {@link #compact} writes a new snapshot and empties the log.
+ *
+ * <p>If writing or forcing records fails, the file is cut back to the end of the last record
+ * written whole and the log fails every change from then on, including the ones waiting on the
+ * failed write, so no change is reported durable that may not be on disk.
+ */
+class MutationLog implements Closeable {
+
+  static final int MAGIC = 0x314C5459; // "YTL1"
+  static final int VERSION = 1;
+
+  /**
+   * When appended records are forced to disk.
+   */
+  enum SyncPolicy {
+    ALWAYS, INTERVAL, OS
+  }
+
+  private static final int FILE_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+  private static final byte CREATE_PLAYLIST = 1;
+  private static final byte ADD_TO_PLAYLIST = 2;
+  private static final byte REMOVE_FROM_PLAYLIST = 3;
+  private static final byte CLEAR_PLAYLIST = 4;
+  private static final byte DELETE_PLAYLIST = 5;
+  private static final byte FLAG_VIDEO = 6;
+  private static final byte ALLOW_VIDEO = 7;
+
+  private final FileChannel channel;
+  private final SyncPolicy policy;
+  private final ScheduledExecutorService syncer;
+  private ByteBuffer pending = ByteBuffer.allocate(4096);
+  private long appended;
+  private long durable;
+  private boolean forcing;
+  private IOException failure;
+  // file offset just past the last record written whole
+  private long end;
+
+  private MutationLog(FileChannel channel, SyncPolicy policy, long intervalMillis, long end) {
+    this.channel = channel;
+    this.end = end;
+    this.policy = policy;
+    if (policy == SyncPolicy.INTERVAL) {
+      syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mutation-log-sync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(this::forceQuietly, intervalMillis, intervalMillis,
+          TimeUnit.MILLISECONDS);
+    } else
+      syncer = null;
+  }
+
+  /**
+   * Opens the log for appending, creating it if needed. A torn record left at the end by a crash
+   * is cut off. The interval is only used by {@link SyncPolicy#INTERVAL}.
+   */
+  static MutationLog open(Path path, SyncPolicy policy, long intervalMillis) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        channel.write(header.flip());
+        channel.force(true);
+      }
+      long end = scan(channel, null, null);
+      channel.truncate(end);
+      channel.position(end);
+      return new MutationLog(channel, policy, intervalMillis, end);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Applies every record of the log to the library and playlists, in order. Records that no
+   * longer apply, such as adding a video that is gone from the catalog, are skipped.
+   */
+  synchronized void replay(VideoLibrary library, PlaylistRegistry playlists) throws IOException {
+    awaitIdle();
+    flush();
+    scan(channel, library, playlists);
+  }
+
+  /**
+   * Returns the size of the log file in bytes, including records not yet written out.
+   */
+  synchronized long size() throws IOException {
+    return channel.size() + pending.position();
+  }
+
+  /**
+   * Makes a change and, if it was made, appends the records it writes, holding the log's lock
+   * across both. Concurrent changes are then logged in the order they were made, so replaying the
+   * log ends in the state they left behind. Returns whether the change was made, once its records
+   * satisfy the sync policy. The change must not wait on anything that appends to this log.
+   */
+  boolean logged(BooleanSupplier change, Consumer<MutationLog> records) {
+    long sequence;
+    try {
+      synchronized (this) {
+        checkFailure();
+        if (!change.getAsBoolean())
+          return false;
+        records.accept(this);
+        sequence = appended;
+      }
+      if (policy == SyncPolicy.ALWAYS)
+        awaitDurable(sequence);
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void createPlaylist(String name) {
+    append(CREATE_PLAYLIST, name, null);
+  }
+
+  void addToPlaylist(String name, String videoId) {
+    append(ADD_TO_PLAYLIST, name, videoId);
+  }
+
+  void removeFromPlaylist(String name, String videoId) {
+    append(REMOVE_FROM_PLAYLIST, name, videoId);
+  }
+
+  void clearPlaylist(String name) {
+    append(CLEAR_PLAYLIST, name, null);
+  }
+
+  void deletePlaylist(String name) {
+    append(DELETE_PLAYLIST, name, null);
+  }
+
+  void flagVideo(String videoId, String reason) {
+    append(FLAG_VIDEO, videoId, reason);
+  }
+
+  void allowVideo(String videoId) {
+    append(ALLOW_VIDEO, videoId, null);
+  }
+
+  /**
+   * Writes a snapshot of the given state and empties the log. The state must include every
+   * change logged so far, and no changes may be logged while this runs.
+   */
+  synchronized void compact(Path snapshot, Path source, VideoLibrary library,
+      PlaylistRegistry playlists) throws IOException {
+    awaitIdle();
+    flush();
+    channel.force(true);
+    Snapshot.write(snapshot, source, library, playlists);
+    channel.truncate(FILE_HEADER_SIZE);
+    channel.position(FILE_HEADER_SIZE);
+    end = FILE_HEADER_SIZE;
+    channel.force(true);
+  }
+
+  /**
+   * Forces all records to disk and closes the log.
+   */
+  @Override
+  public void close() throws IOException {
+    if (syncer != null) {
+      // not shutdownNow: interrupting a force in progress would close the channel
+      syncer.shutdown();
+      try {
+        syncer.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      awaitIdle();
+      flush();
+      channel.force(true);
+      channel.close();
+    }
+  }
+
+  // helper methods
+
+  /**
+   * Appends a record and returns once the sync policy is satisfied. Appends made by the change
+   * of {@link #logged} return at once, and {@code logged} waits for them after the lock is
+   * released.
+   */
+  private void append(byte op, String first, String second) {
+    boolean nested = Thread.holdsLock(this);
+    try {
+      long sequence;
+      synchronized (this) {
+        checkFailure();
+        encode(op, first, second);
+        sequence = ++appended;
+        if (policy != SyncPolicy.ALWAYS) {
+          flush();
+          return;
+        }
+        if (nested)
+          return;
+      }
+      awaitDurable(sequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Waits until the record with the given sequence number is on disk. The first waiter to find
+   * no force in progress writes out everything pending and forces it, on behalf of all waiters.
+   */
+  private void awaitDurable(long sequence) throws IOException {
+    ByteBuffer batch;
+    long batchEnd;
+    synchronized (this) {
+      while (durable < sequence && forcing)
+        waitQuietly();
+      if (durable >= sequence)
+        return;
+      checkFailure();
+      forcing = true;
+      batch = pending.flip();
+      pending = ByteBuffer.allocate(Math.max(4096, batch.capacity()));
+      batchEnd = appended;
+    }
+    try {
+      while (batch.hasRemaining())
+        channel.write(batch);
+      channel.force(false);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        fail(e);
+        forcing = false;
+        notifyAll();
+      }
+      throw e;
+    }
+    synchronized (this) {
+      forcing = false;
+      durable = batchEnd;
+      end += batch.limit();
+      notifyAll();
+    }
+  }
+
+  /**
+   * Waits until no group commit is writing or forcing. Only called while holding the lock.
+   */
+  private void awaitIdle() {
+    while (forcing)
+      waitQuietly();
+  }
+
+  /**
+   * Throws if an earlier write failed. Only called while holding the lock.
+   */
+  private void checkFailure() throws IOException {
+    if (failure != null)
+      throw new IOException("Mutation log failed earlier", failure);
+  }
+
+  /**
+   * Marks the log failed and cuts off whatever part of the failed write reached the file, so a
+   * torn record never hides the records a later recovery would scan past it. Only called while
+   * holding the lock.
+   */
+  private void fail(Exception cause) {
+    failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    try {
+      channel.truncate(end);
+      channel.position(end);
+    } catch (IOException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  private void waitQuietly() {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the log", e);
+    }
+  }
+
+  private void encode(byte op, String first, String second) {
+    byte[] firstBytes = first.getBytes(StandardCharsets.UTF_8);
+    byte[] secondBytes = second != null ? second.getBytes(StandardCharsets.UTF_8) : null;
+    int length = 1 + Integer.BYTES + firstBytes.length
+        + (secondBytes != null ? Integer.BYTES + secondBytes.length : 0);
+    if (pending.remaining() < RECORD_HEADER_SIZE + length) {
+      ByteBuffer larger = ByteBuffer.allocate(
+          Math.max(pending.capacity() * 2, pending.position() + RECORD_HEADER_SIZE + length));
+      pending = larger.put(pending.flip());
+    }
+    int start = pending.position();
+    pending.putInt(length).putInt(0).put(op).putInt(firstBytes.length).put(firstBytes);
+    if (secondBytes != null)
+      pending.putInt(secondBytes.length).put(secondBytes);
+    var crc = new CRC32C();
+    crc.update(pending.duplicate().position(start + RECORD_HEADER_SIZE).limit(pending.position()));
+    pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+  }
+
+  /**
+   * Writes out pending records without forcing them. Only called while holding the lock.
+   */
+  private void flush() throws IOException {
+    if (forcing || pending.position() == 0)
+      return;
+    checkFailure();
+    pending.flip();
+    try {
+      while (pending.hasRemaining())
+        channel.write(pending);
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+      throw e;
+    }
+    end += pending.limit();
+    pending.clear();
+  }
+
+  private void forceQuietly() {
+    try {
+      synchronized (this) {
+        flush();
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      System.err.println("Couldn't sync mutation log: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reads the log from the start, applying each record if a library is given, and returns the
+   * offset just past the last intact record.
+   */
+  private static long scan(FileChannel channel, VideoLibrary library, PlaylistRegistry playlists)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+    channel.read(header, 0);
+    if (header.position() < FILE_HEADER_SIZE || header.getInt(0) != MAGIC)
+      throw new IOException("Not a mutation log");
+    if (header.getInt(Integer.BYTES) != VERSION)
+      throw new IOException("Unsupported mutation log version " + header.getInt(Integer.BYTES));
+
+    long size = channel.size();
+    long position = FILE_HEADER_SIZE;
+    ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    while (position + RECORD_HEADER_SIZE <= size) {
+      recordHeader.clear();
+      channel.read(recordHeader, position);
+      int length = recordHeader.getInt(0);
+      if (length <= 0 || position + RECORD_HEADER_SIZE + length > size)
+        break;
+      ByteBuffer record = ByteBuffer.allocate(length);
+      while (record.hasRemaining())
+        if (channel.read(record, position + RECORD_HEADER_SIZE + record.position()) < 0)
+          break;
+      var crc = new CRC32C();
+      crc.update(record.flip());
+      if ((int) crc.getValue() != recordHeader.getInt(Integer.BYTES))
+        break;
+      if (library != null)
+        apply(record.rewind(), library, playlists);
+      position += RECORD_HEADER_SIZE + length;
+    }
+    return position;
+  }
+
+  private static void apply(ByteBuffer record, VideoLibrary library, PlaylistRegistry playlists) {
+    byte op = record.get();
+    String first = getString(record);
+    String second = record.hasRemaining() ? getString(record) : null;
+    switch (op) {
+      case CREATE_PLAYLIST:
+        playlists.create(first);
+        break;
+      case ADD_TO_PLAYLIST: {
+        VideoPlaylist playlist = playlists.get(first);
+        Video video = library.getVideo(second);
+        if (playlist != null && video != null)
+          playlist.addVideo(video);
+        break;
+      }
+      case REMOVE_FROM_PLAYLIST: {
+        VideoPlaylist playlist = playlists.get(first);
+        Video video = library.getVideo(second);
+        if (playlist != null && video != null)
+          playlist.removeVideo(video);
+        break;
+      }
+      case CLEAR_PLAYLIST: {
+        VideoPlaylist playlist = playlists.get(first);
+        if (playlist != null)
+          playlist.clear();
+        break;
+      }
+      case DELETE_PLAYLIST:
+        playlists.delete(first);
+        break;
+      case FLAG_VIDEO: {
+        Video video = library.getVideo(first);
+        if (video != null)
+          library.flag(video, second);
+        break;
+      }
+      case ALLOW_VIDEO: {
+        Video video = library.getVideo(first);
+        if (video != null)
+          library.unflag(video);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown mutation log record " + op);
+    }
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,309 @@
+package com.google;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A catalog whose records live outside the Java heap, in direct byte buffers.
+ *
+ * <p>Each video is one record {@code titleLength idLength tagCount title id tagIds} in segments
+ * of up to {@link #SEGMENT_SIZE} bytes allocated with {@link ByteBuffer#allocateDirect(int)}.
+ * Records never cross a segment boundary, so a record is addressed by one long offset. The heap only holds the
+ * ordinal to offset array and the open-addressing id table, both primitive arrays the collector
+ * never has to trace, so GC work does not grow with the catalog. {@link #get(int)} decodes a
+ * short-lived {@link Video} view on demand, and reads are safe from any number of threads.
+ *
+ * <p>The same layout is what a {@link Snapshot} stores, so a catalog can also sit directly on
+ * memory-mapped segments of a snapshot file, with the offsets and id table mapped as well.
+ */
+class OffHeapCatalog implements VideoCatalog {
+
+  /**
+   * Size of each direct segment. Must be a power of two.
+   */
+  static final int SEGMENT_SIZE = 1 << 26;
+
+  private static final int INITIAL_SEGMENT_SIZE = 1 << 16;
+  private static final int SEGMENT_BITS = Integer.numberOfTrailingZeros(SEGMENT_SIZE);
+  private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+  /**
+   * Byte order of records, fixed so that segments can be written to and mapped from files.
+   */
+  static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  private final int size;
+  private final ByteBuffer[] segments;
+  private final LongBuffer offsets;
+  private final IntBuffer idTable;
+  private final TagDictionary dictionary;
+
+  private OffHeapCatalog(Builder builder) {
+    size = builder.size;
+    segments = new ByteBuffer[builder.segmentCount];
+    for (int i = 0; i < segments.length; i++) {
+      // limit each segment to the bytes written, so it can be copied out as is
+      ByteBuffer segment = builder.segments[i].duplicate();
+      segment.flip();
+      segments[i] = segment.order(ORDER);
+    }
+    offsets = LongBuffer.wrap(Arrays.copyOf(builder.offsets, size));
+    idTable = IntBuffer.wrap(builder.idTable);
+    dictionary = builder.dictionary;
+  }
+
+  /**
+   * Creates a catalog over existing segments, offsets and id table in the layout of this class,
+   * for example mapped from a snapshot. Tag ids in the records are ids into the given dictionary.
+   */
+  OffHeapCatalog(int size, ByteBuffer[] segments, LongBuffer offsets, IntBuffer idTable,
+      TagDictionary dictionary) {
+    this.size = size;
+    this.segments = segments;
+    this.offsets = offsets;
+    this.idTable = idTable;
+    this.dictionary = dictionary;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Video get(int ordinal) {
+    if (ordinal < 0 || ordinal >= size)
+      throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of range");
+    long offset = offsets.get(ordinal);
+    ByteBuffer segment = segments[segmentOf(offset)];
+    int position = positionOf(offset);
+    int titleLength = segment.getInt(position);
+    int idLength = segment.getInt(position + Integer.BYTES);
+    int tagCount = segment.getInt(position + 2 * Integer.BYTES);
+    int titleStart = position + HEADER_SIZE;
+    int idStart = titleStart + titleLength;
+    int tagStart = idStart + idLength;
+    int[] tagIds = new int[tagCount];
+    for (int i = 0; i < tagCount; i++)
+      tagIds[i] = segment.getInt(tagStart + i * Integer.BYTES);
+    return new Video(decode(segment, titleStart, titleLength), decode(segment, idStart, idLength),
+        tagIds, dictionary, ordinal);
+  }
+
+  @Override
+  public int ordinalOf(String videoId) {
+    return find(idTable, segments, offsets, videoId.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public TagDictionary tagDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the segments, each limited to the bytes in use. The buffers must not be modified.
+   */
+  ByteBuffer[] segments() {
+    return segments;
+  }
+
+  /**
+   * Returns the record offset of every ordinal.
+   */
+  LongBuffer offsets() {
+    return offsets.duplicate();
+  }
+
+  /**
+   * Returns the id table, whose slots hold ordinal + 1 or 0 when empty.
+   */
+  IntBuffer idTable() {
+    return idTable.duplicate();
+  }
+
+  // helper methods
+  private static int segmentOf(long offset) {
+    return (int) (offset >>> SEGMENT_BITS);
+  }
+
+  private static int positionOf(long offset) {
+    return (int) (offset & (SEGMENT_SIZE - 1));
+  }
+
+  private static String decode(ByteBuffer segment, int start, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++)
+      bytes[i] = segment.get(start + i);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int hash(byte[] bytes) {
+    int hash = 1;
+    for (byte b : bytes)
+      hash = 31 * hash + b;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int hash(ByteBuffer segment, int start, int length) {
+    int hash = 1;
+    for (int i = start; i < start + length; i++)
+      hash = 31 * hash + segment.get(i);
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the ordinal whose id equals the key, or -1. Slots hold ordinal + 1.
+   */
+  private static int find(IntBuffer table, ByteBuffer[] segments, LongBuffer offsets,
+      byte[] key) {
+    int mask = table.limit() - 1;
+    for (int slot = hash(key) & mask; table.get(slot) != 0; slot = (slot + 1) & mask) {
+      int ordinal = table.get(slot) - 1;
+      long offset = offsets.get(ordinal);
+      if (idEquals(segments[segmentOf(offset)], positionOf(offset), key))
+        return ordinal;
+    }
+    return -1;
+  }
+
+  private static boolean idEquals(ByteBuffer segment, int position, byte[] key) {
+    if (segment.getInt(position + Integer.BYTES) != key.length)
+      return false;
+    int idStart = position + HEADER_SIZE + segment.getInt(position);
+    for (int i = 0; i < key.length; i++)
+      if (segment.get(idStart + i) != key[i])
+        return false;
+    return true;
+  }
+
+  static class Builder implements VideoCatalog.Builder {
+    private int size;
+    private ByteBuffer[] segments = new ByteBuffer[4];
+    private int segmentCount;
+    private ByteBuffer current;
+    private long[] offsets = new long[64];
+    private int[] idTable = new int[128];
+    private final TagDictionary dictionary;
+
+    Builder() {
+      this(new TagDictionary());
+    }
+
+    /**
+     * Creates a builder whose catalog shares an existing dictionary, for example to copy a
+     * catalog without interning its tags again.
+     */
+    Builder(TagDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public TagDictionary tagDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public boolean add(Video video) {
+      byte[] title = video.getTitle().getBytes(StandardCharsets.UTF_8);
+      byte[] id = video.getVideoId().getBytes(StandardCharsets.UTF_8);
+      int[] tagIds = video.getTagIds(dictionary);
+      long offset = append(title, id, tagIds);
+
+      // a duplicate id repoints the existing ordinal at the new record
+      int ordinal = find(IntBuffer.wrap(idTable), segments, LongBuffer.wrap(offsets), id);
+      boolean added = ordinal < 0;
+      if (added) {
+        ordinal = size++;
+        if (ordinal == offsets.length)
+          offsets = Arrays.copyOf(offsets, ordinal * 2);
+      }
+      offsets[ordinal] = offset;
+      if (added)
+        insert(ordinal, id);
+      video.setOrdinal(ordinal);
+      return added;
+    }
+
+    @Override
+    public OffHeapCatalog build() {
+      return new OffHeapCatalog(this);
+    }
+
+    private long append(byte[] title, byte[] id, int[] tagIds) {
+      int length = HEADER_SIZE + title.length + id.length + tagIds.length * Integer.BYTES;
+      if (length > SEGMENT_SIZE)
+        throw new IllegalArgumentException("Video record of " + length + " bytes exceeds segment");
+      if (current == null || current.remaining() < length)
+        grow(length);
+      long offset = ((long) (segmentCount - 1) << SEGMENT_BITS) | current.position();
+      current.putInt(title.length).putInt(id.length).putInt(tagIds.length).put(title).put(id);
+      for (int tagId : tagIds)
+        current.putInt(tagId);
+      return offset;
+    }
+
+    /**
+     * Makes room for a record. The last segment doubles in place until it reaches
+     * {@link #SEGMENT_SIZE}, so small catalogs do not reserve a whole segment; after that a new
+     * segment is started.
+     */
+    private void grow(int length) {
+      if (current != null && current.capacity() < SEGMENT_SIZE) {
+        int capacity = current.capacity();
+        while (capacity - current.position() < length)
+          capacity *= 2;
+        if (capacity <= SEGMENT_SIZE) {
+          ByteBuffer larger = ByteBuffer.allocateDirect(capacity).order(ORDER);
+          current.flip();
+          larger.put(current);
+          current = larger;
+          segments[segmentCount - 1] = larger;
+          return;
+        }
+      }
+      if (segmentCount == segments.length)
+        segments = Arrays.copyOf(segments, segmentCount * 2);
+      int capacity = INITIAL_SEGMENT_SIZE;
+      while (capacity < length)
+        capacity *= 2;
+      current = ByteBuffer.allocateDirect(capacity).order(ORDER);
+      segments[segmentCount++] = current;
+    }
+
+    private void insert(int ordinal, byte[] id) {
+      // keep the table at most half full
+      if (size * 2 > idTable.length) {
+        int[] old = idTable;
+        idTable = new int[old.length * 2];
+        for (int entry : old)
+          if (entry != 0)
+            place(entry - 1, rehash(entry - 1));
+      }
+      place(ordinal, hash(id));
+    }
+
+    private int rehash(int ordinal) {
+      ByteBuffer segment = segments[segmentOf(offsets[ordinal])];
+      int position = positionOf(offsets[ordinal]);
+      return hash(segment, position + HEADER_SIZE + segment.getInt(position),
+          segment.getInt(position + Integer.BYTES));
+    }
+
+    private void place(int ordinal, int hash) {
+      int mask = idTable.length - 1;
+      int slot = hash & mask;
+      while (idTable[slot] != 0)
+        slot = (slot + 1) & mask;
+      idTable[slot] = ordinal + 1;
+    }
+  }
+}
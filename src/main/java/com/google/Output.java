@@ -0,0 +1,114 @@
+package com.google;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A class used to collect the text printed by a command.
+ *
+ * <p>Text is appended to a reusable {@link StringBuilder} without going through format strings
+ * and is only encoded and written to the underlying stream on {@link #flush()}, once per command.
+ * The bytes match what {@code System.out.printf} would have printed.
+ */
+class Output {
+
+  private static final String NEWLINE = System.lineSeparator();
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final OutputStream out;
+  private final StringBuilder text = new StringBuilder();
+  private final CharsetEncoder encoder;
+  private final int bufferSize;
+  // allocated on the first flush, so sessions that never print cost nothing
+  private ByteBuffer bytes;
+
+  Output(OutputStream out) {
+    this(out, Charset.defaultCharset());
+  }
+
+  Output(OutputStream out, Charset charset) {
+    this(out, charset, BUFFER_SIZE);
+  }
+
+  /**
+   * Creates an output that encodes through a buffer of the given size. Longer replies are
+   * written out in several pieces.
+   */
+  Output(OutputStream out, Charset charset, int bufferSize) {
+    this.out = out;
+    this.bufferSize = bufferSize;
+    this.encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  Output print(String s) {
+    text.append(s);
+    return this;
+  }
+
+  Output print(char c) {
+    text.append(c);
+    return this;
+  }
+
+  Output print(int i) {
+    text.append(i);
+    return this;
+  }
+
+  Output println(String s) {
+    text.append(s).append(NEWLINE);
+    return this;
+  }
+
+  Output println() {
+    text.append(NEWLINE);
+    return this;
+  }
+
+  /**
+   * Flushes early if a lot of text is pending, so long listings stream out instead of being
+   * held in memory in full.
+   */
+  void spill() {
+    if (text.length() >= BUFFER_SIZE)
+      flush();
+  }
+
+  /**
+   * Writes everything printed since the last flush to the underlying stream.
+   */
+  void flush() {
+    if (text.length() == 0)
+      return;
+    try {
+      if (bytes == null)
+        bytes = ByteBuffer.allocate(bufferSize);
+      CharBuffer chars = CharBuffer.wrap(text);
+      encoder.reset();
+      while (encoder.encode(chars, bytes, true).isOverflow())
+        drain();
+      while (encoder.flush(bytes).isOverflow())
+        drain();
+      drain();
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      text.setLength(0);
+    }
+  }
+
+  // helper methods
+  private void drain() throws IOException {
+    out.write(bytes.array(), 0, bytes.position());
+    bytes.clear();
+  }
+}
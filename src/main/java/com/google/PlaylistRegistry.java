@@ -0,0 +1,86 @@
+package com.google;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A class used to hold the playlists of a player.
+ *
+ * <p>Playlist names are unique ignoring case. Lookups go through a concurrent hash map keyed by
+ * the lower-cased name, and a concurrent skip list keyed by the name as created keeps the
+ * playlists in the order they are listed, so showing them never needs a sort. Creates and deletes
+ * update both maps inside the hash map's atomic compute for that name, so they are linearizable
+ * per name without a registry-wide lock, and many sessions can share one registry.
+ */
+class PlaylistRegistry {
+
+  private final ConcurrentMap<String, VideoPlaylist> byKey = new ConcurrentHashMap<>();
+  private final ConcurrentNavigableMap<String, VideoPlaylist> byName =
+      new ConcurrentSkipListMap<>();
+
+  /**
+   * Creates a playlist. Returns null if a playlist with the same name, ignoring case, exists.
+   */
+  VideoPlaylist create(String name) {
+    VideoPlaylist[] created = new VideoPlaylist[1];
+    byKey.computeIfAbsent(key(name), key -> {
+      created[0] = new VideoPlaylist(name);
+      byName.put(name, created[0]);
+      return created[0];
+    });
+    return created[0];
+  }
+
+  /**
+   * Returns the playlist with the given name, ignoring case, or null if there is none.
+   */
+  VideoPlaylist get(String name) {
+    return byKey.get(key(name));
+  }
+
+  /**
+   * Deletes the playlist with the given name, ignoring case. Returns false if there is none.
+   */
+  boolean delete(String name) {
+    boolean[] deleted = new boolean[1];
+    byKey.computeIfPresent(key(name), (key, playlist) -> {
+      byName.remove(playlist.getName());
+      deleted[0] = true;
+      return null;
+    });
+    return deleted[0];
+  }
+
+  boolean isEmpty() {
+    return byKey.isEmpty();
+  }
+
+  int size() {
+    return byKey.size();
+  }
+
+  /**
+   * Returns a read-only view of the playlists sorted by name.
+   */
+  Collection<VideoPlaylist> sorted() {
+    return Collections.unmodifiableCollection(byName.values());
+  }
+
+  /**
+   * Replaces the videos of every playlist as {@link VideoPlaylist#replaceVideos} does.
+   */
+  void replaceVideos(UnaryOperator<Video> replacement) {
+    for (VideoPlaylist playlist : byName.values())
+      playlist.replaceVideos(replacement);
+  }
+
+  // helper methods
+  private static String key(String name) {
+    return name.toLowerCase();
+  }
+}
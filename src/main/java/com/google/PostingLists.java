@@ -0,0 +1,106 @@
+package com.google;
+
+import java.util.Arrays;
+
+/**
+ * Set operations over posting lists, i.e. sorted arrays of distinct video ordinals.
+ *
+ * <p>Intersection and difference gallop through the longer list, so their cost is governed by
+ * the shorter one: about {@code |a| log(|b| / |a|)} comparisons.
+ */
+final class PostingLists {
+
+  static final int[] EMPTY = new int[0];
+
+  private PostingLists() {
+  }
+
+  /**
+   * Returns the ordinals present in both lists.
+   */
+  static int[] intersect(int[] a, int[] b) {
+    if (a.length > b.length) {
+      int[] swap = a;
+      a = b;
+      b = swap;
+    }
+    int[] result = new int[a.length];
+    int count = 0;
+    int j = 0;
+    for (int i = 0; i < a.length && j < b.length; i++) {
+      j = gallop(b, j, a[i]);
+      if (j < b.length && b[j] == a[i])
+        result[count++] = a[i];
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Returns the ordinals of {@code a} that are not in {@code b}.
+   */
+  static int[] difference(int[] a, int[] b) {
+    int[] result = new int[a.length];
+    int count = 0;
+    int j = 0;
+    for (int value : a) {
+      j = gallop(b, j, value);
+      if (j == b.length || b[j] != value)
+        result[count++] = value;
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Returns the ordinals present in either list.
+   */
+  static int[] union(int[] a, int[] b) {
+    int[] result = new int[a.length + b.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j])
+        result[count++] = a[i++];
+      else if (a[i] > b[j])
+        result[count++] = b[j++];
+      else {
+        result[count++] = a[i++];
+        j++;
+      }
+    }
+    while (i < a.length)
+      result[count++] = a[i++];
+    while (j < b.length)
+      result[count++] = b[j++];
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Returns the ordinals {@code 0} to {@code size - 1}.
+   */
+  static int[] all(int size) {
+    int[] result = new int[size];
+    Arrays.setAll(result, i -> i);
+    return result;
+  }
+
+  /**
+   * Returns the first index at or after {@code from} whose value is not less than the target, or
+   * {@code list.length} if there is none. Probes at doubling distances, then binary searches the
+   * last gap.
+   */
+  static int gallop(int[] list, int from, int target) {
+    if (from >= list.length || list[from] >= target)
+      return from;
+    int low = from;
+    int step = 1;
+    while (low + step < list.length && list[low + step] < target) {
+      low += step;
+      step <<= 1;
+    }
+    int high = Math.min(low + step, list.length);
+    // list[low] < target, and list[high] >= target or high == list.length
+    int index = Arrays.binarySearch(list, low + 1, high, target);
+    return index >= 0 ? index : -index - 1;
+  }
+}
@@ -0,0 +1,152 @@
+package com.google;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A class used to pick a random playable video.
+ *
+ * <p>Playable ordinals are kept in a dense array with a reverse position index, so removing or
+ * re-adding one is a swap and a uniform draw is a single random number. Optionally each ordinal
+ * can be given a weight, in which case draws go through a Fenwick tree of the playable weights
+ * and cost {@code O(log n)}. The arrays are only allocated once an ordinal is first removed;
+ * until then every ordinal is playable and a draw is a random number below the capacity, so a
+ * new sampler costs nothing per video. All methods are synchronized, so one sampler can serve
+ * every session of a shared library.
+ */
+class RandomSampler {
+
+  private final int capacity;
+  private int[] playable;
+  private int[] positions;
+  private int size;
+
+  private double[] weights;
+  private double[] tree;
+  private double totalWeight;
+
+  /**
+   * Creates a sampler in which all ordinals {@code 0} to {@code capacity - 1} are playable.
+   */
+  RandomSampler(int capacity) {
+    this.capacity = capacity;
+    this.size = capacity;
+  }
+
+  synchronized boolean isPlayable(int ordinal) {
+    return positions == null || positions[ordinal] >= 0;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Excludes an ordinal from future draws.
+   */
+  synchronized void remove(int ordinal) {
+    if (positions == null)
+      allocate();
+    int position = positions[ordinal];
+    if (position < 0)
+      return;
+    int last = playable[--size];
+    playable[position] = last;
+    positions[last] = position;
+    positions[ordinal] = -1;
+    if (tree != null)
+      update(ordinal, -weights[ordinal]);
+  }
+
+  /**
+   * Makes a removed ordinal available to draws again.
+   */
+  synchronized void add(int ordinal) {
+    if (positions == null || positions[ordinal] >= 0)
+      return;
+    playable[size] = ordinal;
+    positions[ordinal] = size++;
+    if (tree != null)
+      update(ordinal, weights[ordinal]);
+  }
+
+  /**
+   * Switches to weighted draws, where an ordinal is picked with probability proportional to its
+   * weight among the playable ordinals. Passing null switches back to uniform draws.
+   */
+  synchronized void setWeights(double[] weights) {
+    if (weights == null) {
+      this.weights = null;
+      this.tree = null;
+      this.totalWeight = 0;
+      return;
+    }
+    if (weights.length != capacity)
+      throw new IllegalArgumentException("Expected one weight per video");
+    this.weights = weights.clone();
+    this.tree = new double[capacity + 1];
+    this.totalWeight = 0;
+    for (int ordinal = 0; ordinal < capacity; ordinal++) {
+      if (this.weights[ordinal] < 0)
+        throw new IllegalArgumentException("Weights must not be negative");
+      if (isPlayable(ordinal)) {
+        tree[ordinal + 1] += this.weights[ordinal];
+        totalWeight += this.weights[ordinal];
+      }
+    }
+    // build the Fenwick tree in place in linear time
+    for (int i = 1; i < tree.length; i++) {
+      int parent = i + (i & -i);
+      if (parent < tree.length)
+        tree[parent] += tree[i];
+    }
+  }
+
+  /**
+   * Returns a random playable ordinal, or -1 if there is none.
+   */
+  synchronized int sample() {
+    if (size == 0)
+      return -1;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (tree != null && totalWeight > 0) {
+      int ordinal = find(random.nextDouble(totalWeight));
+      // rounding can land on an ordinal with no weight left; fall back to a uniform draw
+      if (ordinal < capacity && isPlayable(ordinal) && weights[ordinal] > 0)
+        return ordinal;
+    }
+    int position = random.nextInt(size);
+    return playable != null ? playable[position] : position;
+  }
+
+  // helper methods
+  private void allocate() {
+    playable = new int[capacity];
+    positions = new int[capacity];
+    for (int ordinal = 0; ordinal < capacity; ordinal++) {
+      playable[ordinal] = ordinal;
+      positions[ordinal] = ordinal;
+    }
+  }
+
+  private void update(int ordinal, double delta) {
+    totalWeight += delta;
+    for (int i = ordinal + 1; i < tree.length; i += i & -i)
+      tree[i] += delta;
+  }
+
+  /**
+   * Returns the smallest ordinal whose prefix sum of weights exceeds the target.
+   */
+  private int find(double target) {
+    int index = 0;
+    for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+      int next = index + step;
+      if (next < tree.length && tree[next] <= target) {
+        index = next;
+        target -= tree[next];
+      }
+    }
+    return index;
+  }
+
+}
@@ -1,24 +1,237 @@
 package com.google;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Run {
+
+  /**
+   * Size past which the mutation log is compacted into the snapshot.
+   */
+  private static final long COMPACT_THRESHOLD = 16 << 20;
+
+  /**
+   * How often a server checks the size of the mutation log, in seconds.
+   */
+  private static final long COMPACT_CHECK_SECONDS = 10;
+
   public static void main(String[] args){
-    System.out.println("Hello and welcome to YouTube, what would you like to do? "
-        + "Enter HELP for list of available commands or EXIT to terminate.");
-    var videoPlayer = new VideoPlayer();
+    String batch = System.getProperty("batch");
+    Integer port = Integer.getInteger("port");
+    CommandBatch.DeferredStdout stdout = null;
+    if (batch != null) {
+      stdout = new CommandBatch.DeferredStdout();
+      System.setOut(new PrintStream(stdout, false));
+    } else if (port == null)
+      System.out.println("Hello and welcome to YouTube, what would you like to do? "
+          + "Enter HELP for list of available commands or EXIT to terminate.");
+    String snapshotProperty = System.getProperty("snapshot");
+    Path snapshot = snapshotProperty != null ? Paths.get(snapshotProperty) : null;
+    var videoPlayer = snapshot != null ? start(snapshot) : null;
+    if (videoPlayer == null) {
+      // no snapshot, or one that could not be read and must not be overwritten on exit
+      snapshot = null;
+      videoPlayer = new VideoPlayer();
+    }
+    // build the search indexes now rather than in the first search
+    videoPlayer.getVideoLibrary().getSharedCatalog().withIndexes();
+    MutationLog log = snapshot != null ? openLog(snapshot, videoPlayer) : null;
+    if (port != null) {
+      serve(port, videoPlayer, log, snapshot);
+      exit(log, snapshot, videoPlayer);
+      return;
+    }
     var parser = new CommandParser(videoPlayer);
+    if (batch != null) {
+      try {
+        runBatch(batch, parser);
+        exit(log, snapshot, videoPlayer);
+      } finally {
+        stdout.drain();
+      }
+      return;
+    }
     var scanner = new Scanner(System.in);
     while (true) {
       System.out.print("YT> ");
       var input = scanner.nextLine();
       if (input.equalsIgnoreCase("exit")) {
-        System.out.println("YouTube has now terminated its execution. " +
-            "Thank you and goodbye!");
+        exit(log, snapshot, videoPlayer);
         return;
       }
-      parser.executeCommand(Arrays.asList(input.split("\\s+")));
+      parser.executeCommand(input);
+      if (log != null)
+        compactIfLarge(log, snapshot, videoPlayer);
+    }
+  }
+
+  /**
+   * Executes the commands of a file, or of standard input if the file is {@code -}, without
+   * prompts, and reports the rate to standard error. The mutation log, if any, is compacted
+   * after the batch rather than checked after every command.
+   */
+  private static void runBatch(String file, CommandParser parser) {
+    var batch = new CommandBatch(parser);
+    long start = System.nanoTime();
+    try (InputStream in = file.equals("-") ? System.in : Files.newInputStream(Paths.get(file))) {
+      batch.run(in);
+    } catch (IOException e) {
+      System.out.println("Couldn't read commands: " + e.getMessage());
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.err.printf(Locale.ROOT, "Executed %d commands in %.3f s (%.0f commands/sec)%n",
+        batch.executed(), seconds, batch.executed() / seconds);
+  }
+
+  /**
+   * Serves sessions of the player over TCP on the given port until {@code EXIT} is entered on
+   * standard input. {@code STATS} prints the number of connections and the command latency, and
+   * {@code RELOAD} reads the catalog file again in the background and swaps it in while sessions
+   * keep running. The mutation log, if any, is compacted once it grows large, checked on a timer
+   * and after every console command; compaction holds the log's lock, so sessions wait for it
+   * rather than change the state while it is written.
+   */
+  private static void serve(int port, VideoPlayer videoPlayer, MutationLog log, Path snapshot) {
+    int workers = Runtime.getRuntime().availableProcessors();
+    ScheduledExecutorService compactor = null;
+    if (log != null) {
+      compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mutation-log-compact");
+        thread.setDaemon(true);
+        return thread;
+      });
+      compactor.scheduleWithFixedDelay(() -> compactIfLarge(log, snapshot, videoPlayer),
+          COMPACT_CHECK_SECONDS, COMPACT_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+    try (var server = CommandServer.start(videoPlayer, new InetSocketAddress(port), workers)) {
+      System.out.println("Serving commands on port " + server.getPort()
+          + ". Enter STATS for latency, RELOAD to reload the catalog or EXIT to stop.");
+      var scanner = new Scanner(System.in);
+      while (scanner.hasNextLine()) {
+        var input = scanner.nextLine().trim();
+        if (input.equalsIgnoreCase("exit"))
+          break;
+        if (input.equalsIgnoreCase("stats"))
+          printStats(server);
+        else if (input.equalsIgnoreCase("reload"))
+          reload(videoPlayer);
+        if (log != null)
+          compactIfLarge(log, snapshot, videoPlayer);
+      }
+      printStats(server);
+    } catch (IOException e) {
+      System.out.println("Couldn't serve on port " + port + ": " + e.getMessage());
+    } finally {
+      // not shutdownNow: interrupting a compaction would close the log's channel
+      if (compactor != null)
+        compactor.shutdown();
+    }
+  }
+
+  private static void reload(VideoPlayer videoPlayer) {
+    long start = System.nanoTime();
+    videoPlayer.reloadCatalog(VideoLibrary.defaultCatalog(), null).whenComplete((done, e) -> {
+      Throwable failure = e != null && e.getCause() != null ? e.getCause() : e;
+      if (failure != null)
+        System.out.println("Couldn't reload catalog: " + failure.getMessage());
+      else
+        System.out.printf(Locale.ROOT, "Reloaded %d videos in %.1f ms%n",
+            videoPlayer.getVideoLibrary().size(), (System.nanoTime() - start) / 1e6);
+    });
+  }
+
+  private static void printStats(CommandServer server) {
+    LatencyHistogram latency = server.getLatency();
+    System.out.printf(Locale.ROOT, "%d connections, %d commands, p50 %.1f us, p99 %.1f us%n",
+        server.getConnections(), latency.count(), latency.percentile(50) / 1e3,
+        latency.percentile(99) / 1e3);
+  }
+
+  private static void exit(MutationLog log, Path snapshot, VideoPlayer videoPlayer) {
+    if (log != null)
+      close(log, snapshot, videoPlayer);
+    System.out.println("YouTube has now terminated its execution. " +
+        "Thank you and goodbye!");
+  }
+
+  /**
+   * Starts from the snapshot if it is up to date with the catalog. If the catalog text changed
+   * since, it is loaded again and the snapshot's flags and playlists are moved to it by video id,
+   * as a reload does. Starts from the catalog text alone if there is no snapshot yet. Returns null
+   * if the snapshot exists but cannot be read, in which case it must be left as it is.
+   */
+  private static VideoPlayer start(Path snapshot) {
+    Path catalog = VideoLibrary.defaultCatalog();
+    try {
+      Snapshot saved = Snapshot.open(snapshot, catalog);
+      if (saved != null)
+        return new VideoPlayer(saved.getLibrary(), saved.getPlaylists(), new Output(System.out));
+      saved = Snapshot.openAnyCatalog(snapshot);
+      if (saved != null) {
+        var videoPlayer = new VideoPlayer(saved.getLibrary(), saved.getPlaylists(),
+            new Output(System.out));
+        videoPlayer.swapCatalog(SharedCatalog.load(catalog, null, new HeapCatalog.Builder()));
+        return videoPlayer;
+      }
+      if (!Files.exists(snapshot))
+        return new VideoPlayer(new VideoLibrary(catalog));
+      System.err.println("Ignoring snapshot of another version, changes will not be saved");
+    } catch (IOException e) {
+      System.err.println("Ignoring unreadable snapshot, changes will not be saved: "
+          + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Opens the mutation log kept next to the snapshot, replays the changes made since the snapshot
+   * was written and records further changes. The sync policy is taken from
+   * {@code -Dsync=always|interval|os}, with the interval from {@code -Dsync.interval} in
+   * milliseconds.
+   */
+  private static MutationLog openLog(Path snapshot, VideoPlayer videoPlayer) {
+    var policy = MutationLog.SyncPolicy.valueOf(
+        System.getProperty("sync", "interval").toUpperCase(Locale.ROOT));
+    long interval = Long.getLong("sync.interval", 100);
+    try {
+      MutationLog log = MutationLog.open(snapshot.resolveSibling(snapshot.getFileName() + ".log"),
+          policy, interval);
+      log.replay(videoPlayer.getVideoLibrary(), videoPlayer.getPlaylists());
+      videoPlayer.setMutationLog(log);
+      return log;
+    } catch (IOException e) {
+      System.out.println("Couldn't open mutation log: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private static void compactIfLarge(MutationLog log, Path snapshot, VideoPlayer videoPlayer) {
+    try {
+      if (log.size() > COMPACT_THRESHOLD)
+        log.compact(snapshot, VideoLibrary.defaultCatalog(), videoPlayer.getVideoLibrary(),
+            videoPlayer.getPlaylists());
+    } catch (IOException e) {
+      System.out.println("Couldn't compact mutation log: " + e.getMessage());
+    }
+  }
+
+  private static void close(MutationLog log, Path snapshot, VideoPlayer videoPlayer) {
+    try {
+      log.compact(snapshot, VideoLibrary.defaultCatalog(), videoPlayer.getVideoLibrary(),
+          videoPlayer.getPlaylists());
+      log.close();
+    } catch (IOException e) {
+      System.out.println("Couldn't save snapshot: " + e.getMessage());
     }
   }
 }
@@ -0,0 +1,134 @@
+package com.google;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A class used to hold everything about a set of videos that never changes once loaded: the
+ * catalog, its title order and the search indexes.
+ *
+ * <p>One instance can back any number of {@link VideoLibrary} objects, and so of player
+ * sessions, on any thread. The search indexes are built once, either up front by
+ * {@link #withIndexes()} or on first use under a lock; once built, searches read them through a
+ * volatile field without locking. The catalog bundled with the application is loaded once per
+ * process by {@link #bundled()}.
+ */
+final class SharedCatalog {
+
+  private final VideoCatalog catalog;
+  private final TitleOrder titleOrder;
+  private volatile TitleIndex titleIndex;
+  private volatile TagIndex tagIndex;
+
+  SharedCatalog(VideoCatalog catalog) {
+    this.catalog = catalog;
+    this.titleOrder = new TitleOrder(catalog.asList());
+  }
+
+  /**
+   * Creates a shared catalog whose title order is already known, as saved by
+   * {@link TitleOrder#toArray()}, so no titles need to be read.
+   */
+  SharedCatalog(VideoCatalog catalog, int[] titleOrder) {
+    this.catalog = catalog;
+    this.titleOrder = new TitleOrder(titleOrder);
+  }
+
+  /**
+   * Returns the catalog bundled with the application, loading it on first use.
+   */
+  static SharedCatalog bundled() {
+    return Bundled.INSTANCE;
+  }
+
+  /**
+   * Returns the path of the catalog bundled with the application.
+   */
+  static Path bundledPath() {
+    return new File(SharedCatalog.class.getResource("/videos.txt").getFile()).toPath();
+  }
+
+  /**
+   * Loads a catalog file in the {@code title | id | tags} format into the catalog representation
+   * of the given builder. The file is parsed in parallel if a pool is given.
+   */
+  static SharedCatalog load(Path catalog, ForkJoinPool pool, VideoCatalog.Builder builder) {
+    try {
+      return read(catalog, pool, builder);
+    } catch (IOException e) {
+      System.out.println("Couldn't find videos.txt");
+      e.printStackTrace();
+    }
+    return new SharedCatalog(builder.build());
+  }
+
+  /**
+   * Loads a catalog file as {@link #load} does, but fails if the file cannot be read instead of
+   * falling back to an empty catalog.
+   */
+  static SharedCatalog read(Path catalog, ForkJoinPool pool, VideoCatalog.Builder builder)
+      throws IOException {
+    TagDictionary dictionary = builder.tagDictionary();
+    if (pool != null)
+      CatalogLoader.loadParallel(catalog, pool, dictionary, video -> add(builder, video));
+    else
+      new CatalogLoader(dictionary).load(catalog, video -> add(builder, video));
+    return new SharedCatalog(builder.build());
+  }
+
+  VideoCatalog catalog() {
+    return catalog;
+  }
+
+  TitleOrder titleOrder() {
+    return titleOrder;
+  }
+
+  TitleIndex titleIndex() {
+    TitleIndex index = titleIndex;
+    if (index != null)
+      return index;
+    synchronized (this) {
+      if (titleIndex == null)
+        titleIndex = new TitleIndex(catalog.asList());
+      return titleIndex;
+    }
+  }
+
+  TagIndex tagIndex() {
+    TagIndex index = tagIndex;
+    if (index != null)
+      return index;
+    synchronized (this) {
+      if (tagIndex == null)
+        tagIndex = new TagIndex(catalog.asList(), catalog.tagDictionary());
+      return tagIndex;
+    }
+  }
+
+  /**
+   * Builds both search indexes now rather than on first search, and returns this catalog.
+   */
+  SharedCatalog withIndexes() {
+    titleIndex();
+    tagIndex();
+    return this;
+  }
+
+  // helper methods
+
+  /**
+   * Adds a video to the catalog being built. A later video with the same id replaces the
+   * earlier one. The warning goes to standard error, so it never mixes with command replies.
+   */
+  private static void add(VideoCatalog.Builder builder, Video video) {
+    if (!builder.add(video))
+      System.err.printf("Duplicate video_id in catalog: %s%n", video.getVideoId());
+  }
+
+  private static final class Bundled {
+    static final SharedCatalog INSTANCE = load(bundledPath(), null, new HeapCatalog.Builder());
+  }
+}
@@ -0,0 +1,353 @@
+package com.google;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A class used to save a library, its flags and a player's playlists to a binary file, and to map
+ * them back without parsing the text catalog again.
+ *
+ * <p>The file is little-endian. It starts with a header of {@code magic version sourceSize
+ * sourceModified videoCount sectionCount}, then an {@code offset length crc} entry per section,
+ * then the CRC of the header itself. The sections are, in order: the tag names, the flag and
+ * playlist state, the title order, the record offsets, the id table, and one section per record
+ * segment in the layout of {@link OffHeapCatalog}. Segments are mapped as they are, so opening a
+ * snapshot only reads the header, the tags and the state; records are paged in when used.
+ *
+ * <p>A snapshot remembers the size and modification time of the text catalog it was made from,
+ * and is stale once those change. Checksums of the small sections are checked on open; the large
+ * ones, which would otherwise have to be read in full, are checked by {@link #verify()}.
+ */
+final class Snapshot {
+
+  static final int MAGIC = 0x31535459; // "YTS1"
+  static final int VERSION = 1;
+
+  private static final int TAGS = 0;
+  private static final int STATE = 1;
+  private static final int TITLE_ORDER = 2;
+  private static final int OFFSETS = 3;
+  private static final int ID_TABLE = 4;
+  private static final int FIRST_SEGMENT = 5;
+
+  private static final int FIXED_HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+  private static final int SECTION_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+
+  private final VideoLibrary library;
+  private final PlaylistRegistry playlists;
+  private final ByteBuffer[] sections;
+  private final int[] checksums;
+
+  private Snapshot(VideoLibrary library, PlaylistRegistry playlists, ByteBuffer[] sections,
+      int[] checksums) {
+    this.library = library;
+    this.playlists = playlists;
+    this.sections = sections;
+    this.checksums = checksums;
+  }
+
+  /**
+   * Returns the library mapped from the snapshot, with its flags restored.
+   */
+  VideoLibrary getLibrary() {
+    return library;
+  }
+
+  /**
+   * Returns the playlists restored from the snapshot.
+   */
+  PlaylistRegistry getPlaylists() {
+    return playlists;
+  }
+
+  /**
+   * Checks the sections that were not checked on open, reading the whole file.
+   */
+  void verify() throws IOException {
+    for (int section = TITLE_ORDER; section < sections.length; section++)
+      if (checksum(sections[section]) != checksums[section])
+        throw new IOException("Snapshot section " + section + " is corrupt");
+  }
+
+  /**
+   * Writes the library and playlists to the snapshot file, stamped with the current size and
+   * modification time of the text catalog they were loaded from. The file is written next to the
+   * target and moved into place, so a crash never leaves a half-written snapshot behind.
+   */
+  static void write(Path snapshot, Path source, VideoLibrary library, PlaylistRegistry playlists)
+      throws IOException {
+    library = library.view();
+    TagDictionary dictionary = library.getSharedCatalog().catalog().tagDictionary();
+    var builder = new OffHeapCatalog.Builder(dictionary);
+    for (int ordinal = 0; ordinal < library.size(); ordinal++) {
+      Video video = library.getVideo(ordinal);
+      builder.add(new Video(video.getTitle(), video.getVideoId(), video.getTagIds(),
+          video.getTagDictionary()));
+    }
+    OffHeapCatalog catalog = builder.build();
+
+    ByteBuffer[] segments = catalog.segments();
+    ByteBuffer[] sections = new ByteBuffer[FIRST_SEGMENT + segments.length];
+    sections[TAGS] = encodeTags(dictionary);
+    sections[STATE] = encodeState(library, playlists);
+    sections[TITLE_ORDER] = encodeInts(IntBuffer.wrap(library.getTitleOrder()));
+    sections[OFFSETS] = encodeLongs(catalog.offsets());
+    sections[ID_TABLE] = encodeInts(catalog.idTable());
+    for (int i = 0; i < segments.length; i++)
+      sections[FIRST_SEGMENT + i] = segments[i].duplicate();
+
+    ByteBuffer header = ByteBuffer.allocate(headerSize(sections.length))
+        .order(OffHeapCatalog.ORDER);
+    header.putInt(MAGIC).putInt(VERSION)
+        .putLong(Files.size(source)).putLong(Files.getLastModifiedTime(source).toMillis())
+        .putInt(library.size()).putInt(sections.length);
+    long offset = header.capacity();
+    for (ByteBuffer section : sections) {
+      header.putLong(offset).putLong(section.remaining()).putInt(checksum(section));
+      offset += section.remaining();
+    }
+    header.putInt(checksum(header.duplicate().flip()));
+    header.flip();
+
+    Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeFully(channel, header);
+      for (ByteBuffer section : sections)
+        writeFully(channel, section);
+      channel.force(true);
+    }
+    Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Maps a snapshot back. Returns null if there is no snapshot, or if it was written by another
+   * version or from a different state of the text catalog, in which case the catalog should be
+   * loaded from text. Throws an {@link IOException} if the snapshot is corrupt.
+   */
+  static Snapshot open(Path snapshot, Path source) throws IOException {
+    return map(snapshot, source);
+  }
+
+  /**
+   * Maps a snapshot back as {@link #open} does, but also if the text catalog has changed since it
+   * was written, so that its flags and playlists can be moved to the new catalog by video id.
+   * Returns null if there is no snapshot or it was written by another version.
+   */
+  static Snapshot openAnyCatalog(Path snapshot) throws IOException {
+    return map(snapshot, null);
+  }
+
+  // helper methods
+
+  /**
+   * Maps a snapshot, checking that it was made from the source unless the source is null.
+   */
+  private static Snapshot map(Path snapshot, Path source) throws IOException {
+    if (!Files.exists(snapshot))
+      return null;
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      ByteBuffer fixed = read(channel, 0, FIXED_HEADER_SIZE);
+      if (fixed.getInt() != MAGIC)
+        throw new IOException("Not a video library snapshot: " + snapshot);
+      if (fixed.getInt() != VERSION)
+        return null;
+      long sourceSize = fixed.getLong();
+      long sourceModified = fixed.getLong();
+      if (source != null && (sourceSize != Files.size(source)
+          || sourceModified != Files.getLastModifiedTime(source).toMillis()))
+        return null;
+      int videoCount = fixed.getInt();
+      int sectionCount = fixed.getInt();
+      if (videoCount < 0 || sectionCount < FIRST_SEGMENT || sectionCount > 1 << 16)
+        throw new IOException("Snapshot header is corrupt");
+
+      ByteBuffer header = read(channel, 0, headerSize(sectionCount));
+      int headerChecksum = header.getInt(header.limit() - Integer.BYTES);
+      if (checksum(header.duplicate().limit(header.limit() - Integer.BYTES)) != headerChecksum)
+        throw new IOException("Snapshot header is corrupt");
+      header.position(FIXED_HEADER_SIZE);
+      ByteBuffer[] sections = new ByteBuffer[sectionCount];
+      int[] checksums = new int[sectionCount];
+      for (int section = 0; section < sectionCount; section++) {
+        long offset = header.getLong();
+        long length = header.getLong();
+        checksums[section] = header.getInt();
+        if (offset < 0 || length < 0 || length > Integer.MAX_VALUE
+            || offset + length > channel.size())
+          throw new IOException("Snapshot is truncated");
+        sections[section] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length)
+            .order(OffHeapCatalog.ORDER);
+      }
+      for (int section : new int[] {TAGS, STATE})
+        if (checksum(sections[section]) != checksums[section])
+          throw new IOException("Snapshot section " + section + " is corrupt");
+
+      ByteBuffer[] segments = Arrays.copyOfRange(sections, FIRST_SEGMENT, sectionCount);
+      var catalog = new OffHeapCatalog(videoCount, segments,
+          sections[OFFSETS].asLongBuffer(), sections[ID_TABLE].asIntBuffer(),
+          decodeTags(sections[TAGS].duplicate().order(OffHeapCatalog.ORDER)));
+      int[] titleOrder = new int[videoCount];
+      sections[TITLE_ORDER].asIntBuffer().get(titleOrder);
+      var library = new VideoLibrary(catalog, titleOrder);
+      var playlists = new PlaylistRegistry();
+      decodeState(sections[STATE].duplicate().order(OffHeapCatalog.ORDER), library, playlists);
+      return new Snapshot(library, playlists, sections, checksums);
+    } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+      throw new IOException("Snapshot is corrupt", e);
+    }
+  }
+  private static int headerSize(int sectionCount) {
+    return FIXED_HEADER_SIZE + sectionCount * SECTION_ENTRY_SIZE + Integer.BYTES;
+  }
+
+  private static ByteBuffer encodeTags(TagDictionary dictionary) {
+    var encoder = new Encoder();
+    int count = dictionary.size();
+    encoder.putInt(count);
+    for (int id = 0; id < count; id++)
+      encoder.putString(dictionary.name(id));
+    return encoder.finish();
+  }
+
+  /**
+   * Interns the tags of the snapshot into a new dictionary, in which each one gets back the id
+   * the records refer to it by.
+   */
+  private static TagDictionary decodeTags(ByteBuffer buffer) throws IOException {
+    var dictionary = new TagDictionary();
+    int count = buffer.getInt();
+    for (int id = 0; id < count; id++)
+      if (dictionary.intern(getString(buffer)) != id)
+        throw new IOException("Snapshot tags are corrupt");
+    return dictionary;
+  }
+
+  private static ByteBuffer encodeState(VideoLibrary library, PlaylistRegistry playlists) {
+    var encoder = new Encoder();
+    List<Video> flagged = library.getFlaggedVideos();
+    encoder.putInt(flagged.size());
+    for (Video video : flagged) {
+      encoder.putInt(video.getOrdinal());
+      encoder.putString(library.getFlag(video));
+    }
+    List<VideoPlaylist> all = new ArrayList<>(playlists.sorted());
+    encoder.putInt(all.size());
+    for (VideoPlaylist playlist : all) {
+      // a playlist may still hold videos of the catalog before a reload
+      List<Video> videos = new ArrayList<>(playlist.getVideos().size());
+      for (Video video : playlist.getVideos()) {
+        Video current = library.getVideo(video.getVideoId());
+        if (current != null)
+          videos.add(current);
+      }
+      encoder.putString(playlist.getName());
+      encoder.putInt(videos.size());
+      for (Video video : videos)
+        encoder.putInt(video.getOrdinal());
+    }
+    return encoder.finish();
+  }
+
+  private static void decodeState(ByteBuffer buffer, VideoLibrary library,
+      PlaylistRegistry playlists) {
+    int flagCount = buffer.getInt();
+    for (int i = 0; i < flagCount; i++) {
+      Video video = library.getVideo(buffer.getInt());
+      library.flag(video, getString(buffer));
+    }
+    int playlistCount = buffer.getInt();
+    for (int i = 0; i < playlistCount; i++) {
+      VideoPlaylist playlist = playlists.create(getString(buffer));
+      int videoCount = buffer.getInt();
+      for (int j = 0; j < videoCount; j++)
+        playlist.addVideo(library.getVideo(buffer.getInt()));
+    }
+  }
+
+  private static ByteBuffer encodeInts(IntBuffer values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.remaining() * Integer.BYTES)
+        .order(OffHeapCatalog.ORDER);
+    buffer.asIntBuffer().put(values);
+    return buffer;
+  }
+
+  private static ByteBuffer encodeLongs(LongBuffer values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.remaining() * Long.BYTES)
+        .order(OffHeapCatalog.ORDER);
+    buffer.asLongBuffer().put(values);
+    return buffer;
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int checksum(ByteBuffer buffer) {
+    var crc = new CRC32C();
+    crc.update(buffer.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(OffHeapCatalog.ORDER);
+    while (buffer.hasRemaining())
+      if (channel.read(buffer, position + buffer.position()) < 0)
+        throw new IOException("Snapshot is truncated");
+    return buffer.flip();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  /**
+   * A growable little-endian buffer for the small sections.
+   */
+  private static final class Encoder {
+    private ByteBuffer buffer = ByteBuffer.allocate(1024).order(OffHeapCatalog.ORDER);
+
+    void putInt(int value) {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    void putString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+
+    ByteBuffer finish() {
+      return buffer.flip();
+    }
+
+    private void ensure(int length) {
+      if (buffer.remaining() < length) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+            buffer.position() + length)).order(OffHeapCatalog.ORDER);
+        buffer.flip();
+        buffer = larger.put(buffer);
+      }
+    }
+  }
+}
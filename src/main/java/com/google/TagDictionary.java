@@ -0,0 +1,62 @@
+package com.google;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class used to intern tags, giving each distinct tag a small int id.
+ *
+ * <p>Each catalog has its own dictionary, which its videos store their tags as ids into, so every
+ * occurrence of a tag in the catalog is the same string and tags can be compared as ints. The
+ * dictionary only lives as long as its catalog, so reloading a catalog never accumulates the tags
+ * of earlier versions. Interning is safe from several threads, which the parallel catalog loader
+ * relies on.
+ */
+class TagDictionary {
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] names = new String[64];
+  private int size;
+
+  /**
+   * Returns the id of the tag, assigning the next id if the tag has not been seen before.
+   */
+  int intern(String tag) {
+    Integer id = ids.get(tag);
+    return id != null ? id : assign(tag);
+  }
+
+  /**
+   * Returns the id of the tag, or -1 if it has never been interned.
+   */
+  int idOf(String tag) {
+    return ids.getOrDefault(tag, -1);
+  }
+
+  /**
+   * Returns the tag with the given id. Every call returns the same string instance.
+   */
+  String name(int id) {
+    return names[id];
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  // helper methods
+  private synchronized int assign(String tag) {
+    Integer id = ids.get(tag);
+    if (id != null)
+      return id;
+    String[] current = names;
+    if (size == current.length)
+      current = Arrays.copyOf(current, size * 2);
+    current[size] = tag;
+    // publish the name before the id, so whoever sees the id can also read the name
+    names = current;
+    ids.put(tag, size);
+    return size++;
+  }
+}
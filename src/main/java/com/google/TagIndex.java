@@ -0,0 +1,122 @@
+package com.google;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class used to look up videos by tag.
+ *
+ * <p>Posting lists are first collected per tag id, so building the index never hashes a tag
+ * string. Ids whose tags only differ in case are then merged into one entry of a dictionary of
+ * lower-cased tags, each with a sorted posting list of the ordinals of the videos carrying it.
+ * Exact lookups go from the query's tag id straight to its entry, falling back to a binary search
+ * for tags written in a different case, and prefix lookups merge the lists of one contiguous
+ * dictionary range.
+ */
+class TagIndex {
+
+  private final String[] tags;
+  private final int[][] postings;
+  private final int[] entryOfId;
+  private final TagDictionary dictionary;
+
+  /**
+   * Indexes videos whose tag ids all refer to the given dictionary.
+   */
+  TagIndex(List<Video> videos, TagDictionary dictionary) {
+    this.dictionary = dictionary;
+    IntList[] byId = new IntList[dictionary.size()];
+    for (int ordinal = 0; ordinal < videos.size(); ordinal++) {
+      for (int id : videos.get(ordinal).getTagIds()) {
+        if (id >= byId.length)
+          byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+        if (byId[id] == null)
+          byId[id] = new IntList(4);
+        if (byId[id].last() != ordinal)
+          byId[id].add(ordinal);
+      }
+    }
+
+    Map<String, IntList> idsByTag = new HashMap<>();
+    for (int id = 0; id < byId.length; id++)
+      if (byId[id] != null)
+        idsByTag.computeIfAbsent(normalize(dictionary.name(id)), k -> new IntList(1))
+            .add(id);
+    tags = idsByTag.keySet().toArray(new String[0]);
+    Arrays.sort(tags);
+    postings = new int[tags.length][];
+    entryOfId = new int[byId.length];
+    Arrays.fill(entryOfId, -1);
+    for (int entry = 0; entry < tags.length; entry++) {
+      IntList ids = idsByTag.get(tags[entry]);
+      int[][] lists = new int[ids.size()][];
+      for (int i = 0; i < ids.size(); i++) {
+        lists[i] = byId[ids.get(i)].toArray();
+        entryOfId[ids.get(i)] = entry;
+      }
+      postings[entry] = merge(lists);
+    }
+  }
+
+  /**
+   * Returns the ordinals, in ascending order, of the videos with exactly this tag, ignoring case.
+   * The returned array must not be modified.
+   */
+  int[] exact(String tag) {
+    int id = dictionary.idOf(tag);
+    if (id >= 0 && id < entryOfId.length && entryOfId[id] >= 0)
+      return postings[entryOfId[id]];
+    int index = Arrays.binarySearch(tags, normalize(tag));
+    return index >= 0 ? postings[index] : PostingLists.EMPTY;
+  }
+
+  /**
+   * Returns the ordinals, in ascending order and without duplicates, of the videos with a tag
+   * starting with the prefix, ignoring case. The returned array must not be modified.
+   */
+  int[] prefix(String prefix) {
+    String normalized = normalize(prefix);
+    int from = lowerBound(normalized);
+    int to = from;
+    while (to < tags.length && tags[to].startsWith(normalized))
+      to++;
+    return merge(Arrays.copyOfRange(postings, from, to));
+  }
+
+  // helper methods
+  static String normalize(String tag) {
+    return tag.toLowerCase();
+  }
+
+  /**
+   * Merges sorted posting lists into one sorted list without duplicates.
+   */
+  private static int[] merge(int[][] lists) {
+    if (lists.length == 0)
+      return PostingLists.EMPTY;
+    if (lists.length == 1)
+      return lists[0];
+    int total = 0;
+    for (int[] list : lists)
+      total += list.length;
+    int[] merged = new int[total];
+    int offset = 0;
+    for (int[] list : lists) {
+      System.arraycopy(list, 0, merged, offset, list.length);
+      offset += list.length;
+    }
+    Arrays.sort(merged);
+    int count = 0;
+    for (int i = 0; i < merged.length; i++)
+      if (count == 0 || merged[count - 1] != merged[i])
+        merged[count++] = merged[i];
+    return Arrays.copyOf(merged, count);
+  }
+
+  private int lowerBound(String key) {
+    int index = Arrays.binarySearch(tags, key);
+    return index >= 0 ? index : -index - 1;
+  }
+}
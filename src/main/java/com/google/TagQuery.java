@@ -0,0 +1,108 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A class used to represent a boolean query over video tags, such as
+ * {@code #cat AND #animal NOT #google}.
+ *
+ * <p>A query is a disjunction of conjunctions:
+ * <pre>
+ *   query       := conjunction ( OR conjunction )*
+ *   conjunction := [NOT] tag ( [AND] [NOT] tag )*
+ * </pre>
+ * Operators are case-insensitive, tags are matched exactly (ignoring case) and adjacent tags are
+ * implicitly ANDed. NOT binds to the tag that follows it.
+ */
+class TagQuery {
+
+  private final List<Conjunction> disjuncts;
+
+  private TagQuery(List<Conjunction> disjuncts) {
+    this.disjuncts = disjuncts;
+  }
+
+  /**
+   * Parses a query. Throws an {@link IllegalArgumentException} describing the problem if the
+   * query is malformed.
+   */
+  static TagQuery parse(String query) {
+    List<Conjunction> disjuncts = new ArrayList<>();
+    Conjunction current = new Conjunction();
+    boolean expectTag = true;
+    boolean negate = false;
+    for (String token : query.strip().split("\\s+")) {
+      if (token.isEmpty())
+        continue;
+      switch (token.toUpperCase()) {
+        case "OR":
+          if (expectTag)
+            throw new IllegalArgumentException("OR must follow a tag");
+          disjuncts.add(current);
+          current = new Conjunction();
+          expectTag = true;
+          break;
+        case "AND":
+          if (expectTag)
+            throw new IllegalArgumentException("AND must follow a tag");
+          expectTag = true;
+          break;
+        case "NOT":
+          if (negate)
+            throw new IllegalArgumentException("NOT must be followed by a tag");
+          negate = true;
+          expectTag = true;
+          break;
+        default:
+          if (!token.startsWith("#"))
+            throw new IllegalArgumentException(
+                String.format("Expected a tag starting with # but found %s", token));
+          (negate ? current.excluded : current.included).add(token);
+          negate = false;
+          expectTag = false;
+          break;
+      }
+    }
+    if (expectTag)
+      throw new IllegalArgumentException("Query must end with a tag");
+    disjuncts.add(current);
+    return new TagQuery(disjuncts);
+  }
+
+  /**
+   * Returns the ordinals, in ascending order, of the videos matching the query. {@code size} is
+   * the number of videos in the library, which a purely negative conjunction starts from.
+   */
+  int[] evaluate(TagIndex index, int size) {
+    int[] result = PostingLists.EMPTY;
+    for (Conjunction conjunction : disjuncts)
+      result = PostingLists.union(result, conjunction.evaluate(index, size));
+    return result;
+  }
+
+  private static class Conjunction {
+    private final List<String> included = new ArrayList<>();
+    private final List<String> excluded = new ArrayList<>();
+
+    int[] evaluate(TagIndex index, int size) {
+      int[] result;
+      if (included.isEmpty())
+        result = PostingLists.all(size);
+      else {
+        // start from the shortest list so every intersection costs at most that much
+        List<int[]> lists = new ArrayList<>(included.size());
+        for (String tag : included)
+          lists.add(index.exact(tag));
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++)
+          result = PostingLists.intersect(result, lists.get(i));
+      }
+      for (int i = 0; i < excluded.size() && result.length > 0; i++)
+        result = PostingLists.difference(result, index.exact(excluded.get(i)));
+      return result;
+    }
+  }
+}
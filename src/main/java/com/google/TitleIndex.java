@@ -0,0 +1,143 @@
+package com.google;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A class used to answer case-insensitive substring queries over video titles.
+ *
+ * <p>Every distinct 1, 2 and 3 character gram of a lower-cased title maps to a sorted posting
+ * list of video ordinals. Terms of up to three characters are answered straight from one list.
+ * Longer terms intersect the lists of their trigrams and check the few candidates left against
+ * their titles, read back from the catalog, so the matches are exactly those of
+ * {@code title.toLowerCase().contains(term.toLowerCase())}.
+ *
+ * <p>The grams are packed into {@code long} keys of an open-addressing table whose values are
+ * plain {@code int[]} lists, and no titles are kept, so the index holds one array per distinct
+ * gram and nothing per video beyond its postings. Over an off-heap catalog the titles stay off
+ * the heap.
+ */
+class TitleIndex {
+
+  private static final int MAX_GRAM = 3;
+
+  private final List<Video> videos;
+  // open-addressing table of gram keys, 0 marking an empty slot, and their posting lists
+  private long[] keys;
+  private int[][] postings;
+
+  TitleIndex(List<Video> videos) {
+    this.videos = videos;
+    this.keys = new long[1024];
+    this.postings = new int[keys.length][];
+    // the number of ordinals in each list while building
+    int[] counts = new int[keys.length];
+    int grams = 0;
+    for (int ordinal = 0; ordinal < videos.size(); ordinal++) {
+      String title = videos.get(ordinal).getTitle().toLowerCase();
+      for (int start = 0; start < title.length(); start++) {
+        for (int length = 1; length <= MAX_GRAM && start + length <= title.length(); length++) {
+          if (2 * (grams + 1) > keys.length)
+            counts = grow(counts);
+          int slot = slotOf(gram(title, start, length));
+          if (keys[slot] == 0) {
+            keys[slot] = gram(title, start, length);
+            postings[slot] = new int[4];
+            grams++;
+          }
+          int[] list = postings[slot];
+          int count = counts[slot];
+          if (count > 0 && list[count - 1] == ordinal)
+            continue;
+          if (count == list.length)
+            postings[slot] = list = Arrays.copyOf(list, count * 2);
+          list[count] = ordinal;
+          counts[slot] = count + 1;
+        }
+      }
+    }
+    for (int slot = 0; slot < keys.length; slot++)
+      if (keys[slot] != 0 && postings[slot].length != counts[slot])
+        postings[slot] = Arrays.copyOf(postings[slot], counts[slot]);
+  }
+
+  /**
+   * Returns the ordinals, in ascending order, of the videos whose title contains the term,
+   * ignoring case. The returned array must not be modified.
+   */
+  int[] search(String term) {
+    String lowerTerm = term.toLowerCase();
+    int length = lowerTerm.length();
+    if (length == 0)
+      return PostingLists.all(videos.size());
+    if (length <= MAX_GRAM)
+      return postingsOf(gram(lowerTerm, 0, length));
+
+    int[][] lists = new int[length - MAX_GRAM + 1][];
+    for (int start = 0; start < lists.length; start++) {
+      lists[start] = postingsOf(gram(lowerTerm, start, MAX_GRAM));
+      if (lists[start].length == 0)
+        return PostingLists.EMPTY;
+    }
+    Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+
+    int[] candidates = lists[0];
+    for (int i = 1; i < lists.length && candidates.length > 0; i++)
+      candidates = PostingLists.intersect(candidates, lists[i]);
+
+    int count = 0;
+    int[] matches = new int[candidates.length];
+    for (int ordinal : candidates)
+      if (videos.get(ordinal).getTitle().toLowerCase().contains(lowerTerm))
+        matches[count++] = ordinal;
+    return Arrays.copyOf(matches, count);
+  }
+
+  // helper methods
+  private int[] postingsOf(long key) {
+    int[] list = postings[slotOf(key)];
+    return list != null ? list : PostingLists.EMPTY;
+  }
+
+  /**
+   * Returns the slot holding the key, or the empty slot where it belongs.
+   */
+  private int slotOf(long key) {
+    int mask = keys.length - 1;
+    int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    while (keys[slot] != 0 && keys[slot] != key)
+      slot = (slot + 1) & mask;
+    return slot;
+  }
+
+  /**
+   * Doubles the table, moving every key, list and build count to its new slot.
+   */
+  private int[] grow(int[] counts) {
+    long[] oldKeys = keys;
+    int[][] oldPostings = postings;
+    keys = new long[oldKeys.length * 2];
+    postings = new int[keys.length][];
+    int[] newCounts = new int[keys.length];
+    for (int old = 0; old < oldKeys.length; old++) {
+      if (oldKeys[old] == 0)
+        continue;
+      int slot = slotOf(oldKeys[old]);
+      keys[slot] = oldKeys[old];
+      postings[slot] = oldPostings[old];
+      newCounts[slot] = counts[old];
+    }
+    return newCounts;
+  }
+
+  /**
+   * Packs up to three characters and the length into a key, which is never 0.
+   */
+  private static long gram(String text, int start, int length) {
+    long key = length;
+    for (int i = start; i < start + length; i++)
+      key = (key << 16) | text.charAt(i);
+    return key;
+  }
+}
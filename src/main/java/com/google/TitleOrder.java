@@ -0,0 +1,106 @@
+package com.google;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A class used to keep videos in title order.
+ *
+ * <p>Each video ordinal has a dense title rank, so putting a set of videos in title order is a
+ * sort of small ints rather than of strings. Ties between equal titles are broken by ordinal.
+ */
+class TitleOrder {
+
+  /**
+   * Below this many values an ordinary sort beats the fixed cost of a radix sort.
+   */
+  private static final int RADIX_THRESHOLD = 256;
+
+  private final int[] order;
+  private final int[] ranks;
+
+  /**
+   * Ranks all the given videos, which must be indexed by ordinal.
+   */
+  TitleOrder(List<Video> videos) {
+    Video[] sorted = videos.toArray(new Video[0]);
+    Arrays.sort(sorted, Comparator.comparing(Video::getTitle));
+    order = new int[sorted.length];
+    ranks = new int[sorted.length];
+    for (int rank = 0; rank < sorted.length; rank++) {
+      order[rank] = sorted[rank].getOrdinal();
+      ranks[order[rank]] = rank;
+    }
+  }
+
+  /**
+   * Restores an order saved with {@link #toArray()}, without comparing titles.
+   */
+  TitleOrder(int[] order) {
+    this.order = order.clone();
+    ranks = new int[order.length];
+    for (int rank = 0; rank < order.length; rank++)
+      ranks[order[rank]] = rank;
+  }
+
+  int size() {
+    return order.length;
+  }
+
+  /**
+   * Returns the ordinals of all videos in title order.
+   */
+  int[] toArray() {
+    return order.clone();
+  }
+
+  /**
+   * Returns the ordinal of the video with the given title rank.
+   */
+  int ordinalAt(int rank) {
+    return order[rank];
+  }
+
+  int rankOf(int ordinal) {
+    return ranks[ordinal];
+  }
+
+  /**
+   * Sorts the given ordinals into title order in place.
+   */
+  void sort(int[] ordinals) {
+    for (int i = 0; i < ordinals.length; i++)
+      ordinals[i] = ranks[ordinals[i]];
+    if (ordinals.length < RADIX_THRESHOLD)
+      Arrays.sort(ordinals);
+    else
+      radixSort(ordinals);
+    for (int i = 0; i < ordinals.length; i++)
+      ordinals[i] = order[ordinals[i]];
+  }
+
+  // helper methods
+
+  /**
+   * Sorts non-negative ints with two stable counting passes over 16-bit digits.
+   */
+  private static void radixSort(int[] values) {
+    int[] buffer = new int[values.length];
+    int[] source = values;
+    int[] target = buffer;
+    for (int shift = 0; shift < 32; shift += 16) {
+      int[] counts = new int[(1 << 16) + 1];
+      for (int value : source)
+        counts[((value >>> shift) & 0xFFFF) + 1]++;
+      for (int digit = 0; digit < 1 << 16; digit++)
+        counts[digit + 1] += counts[digit];
+      for (int value : source)
+        target[counts[(value >>> shift) & 0xFFFF]++] = value;
+      int[] swap = source;
+      source = target;
+      target = swap;
+    }
+    // after an even number of passes the sorted values are back in the original array
+  }
+}
@@ -1,22 +1,44 @@
 package com.google;
 
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A class used to represent a video.
+ *
+ * <p>Videos are equal when their video ids are, so a video read back from a compact catalog
+ * matches the one it was built from. Flags are held by the {@link VideoLibrary}. Tags are kept as
+ * ids into the {@link TagDictionary} of the video's catalog rather than as strings.
  */
 class Video {
 
   private final String title;
   private final String videoId;
-  private final List<String> tags;
-  private String flag;
+  private final int[] tagIds;
+  private final TagDictionary dictionary;
+  private int ordinal = -1;
 
-  Video(String title, String videoId, List<String> tags) {
+  /**
+   * Creates a video whose tags are interned into the given dictionary.
+   */
+  Video(String title, String videoId, List<String> tags, TagDictionary dictionary) {
+    this(title, videoId, intern(tags, dictionary), dictionary);
+  }
+
+  /**
+   * Creates a video whose tags are the given ids into the dictionary. The array is not copied.
+   */
+  Video(String title, String videoId, int[] tagIds, TagDictionary dictionary) {
     this.title = title;
     this.videoId = videoId;
-    this.tags = Collections.unmodifiableList(tags);
+    this.tagIds = tagIds;
+    this.dictionary = dictionary;
+  }
+
+  Video(String title, String videoId, int[] tagIds, TagDictionary dictionary, int ordinal) {
+    this(title, videoId, tagIds, dictionary);
+    this.ordinal = ordinal;
   }
 
   /**
@@ -37,18 +59,83 @@ class Video {
    * Returns a readonly collection of the tags of the video.
    */
   List<String> getTags() {
-    return tags;
+    return new TagList(tagIds, dictionary);
   }
 
-  String getFlag() {
-    return flag;
+  /**
+   * Returns the ids of the tags of the video in its {@link #getTagDictionary() dictionary}. The
+   * returned array must not be modified.
+   */
+  int[] getTagIds() {
+    return tagIds;
+  }
+
+  /**
+   * Returns the ids of the tags of the video in another dictionary, interning them there if
+   * needed. The returned array must not be modified.
+   */
+  int[] getTagIds(TagDictionary other) {
+    if (other == dictionary)
+      return tagIds;
+    int[] ids = new int[tagIds.length];
+    for (int i = 0; i < ids.length; i++)
+      ids[i] = other.intern(dictionary.name(tagIds[i]));
+    return ids;
   }
 
-  void flag(String description) {
-    flag = description;
+  /**
+   * Returns the dictionary the tag ids of the video refer to.
+   */
+  TagDictionary getTagDictionary() {
+    return dictionary;
   }
 
-  void unflag() {
-    flag = null;
+  /**
+   * Returns the position of the video in its library, or -1 if it has not been added to one.
+   */
+  int getOrdinal() {
+    return ordinal;
+  }
+
+  void setOrdinal(int ordinal) {
+    this.ordinal = ordinal;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || o instanceof Video && videoId.equals(((Video) o).videoId);
+  }
+
+  @Override
+  public int hashCode() {
+    return videoId.hashCode();
+  }
+
+  // helper methods
+  private static int[] intern(List<String> tags, TagDictionary dictionary) {
+    int[] ids = new int[tags.size()];
+    for (int i = 0; i < ids.length; i++)
+      ids[i] = dictionary.intern(tags.get(i));
+    return ids;
+  }
+
+  private static final class TagList extends AbstractList<String> implements RandomAccess {
+    private final int[] ids;
+    private final TagDictionary dictionary;
+
+    TagList(int[] ids, TagDictionary dictionary) {
+      this.ids = ids;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public String get(int index) {
+      return dictionary.name(ids[index]);
+    }
+
+    @Override
+    public int size() {
+      return ids.length;
+    }
   }
 }
@@ -0,0 +1,69 @@
+package com.google;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The videos of a library, numbered by dense ordinals from {@code 0} to {@code size() - 1}.
+ */
+interface VideoCatalog {
+
+  int size();
+
+  /**
+   * Returns the video with the given ordinal.
+   */
+  Video get(int ordinal);
+
+  /**
+   * Returns the ordinal of the video with the given id, or -1 if there is none.
+   */
+  int ordinalOf(String videoId);
+
+  /**
+   * Returns the dictionary the tag ids of the videos refer to, which belongs to this catalog.
+   */
+  TagDictionary tagDictionary();
+
+  /**
+   * Returns an empty builder for a catalog of the same representation, with a new dictionary.
+   */
+  Builder newBuilder();
+
+  /**
+   * Returns a read-only list view of the catalog indexed by ordinal.
+   */
+  default List<Video> asList() {
+    return new AbstractList<>() {
+      @Override
+      public Video get(int ordinal) {
+        return VideoCatalog.this.get(ordinal);
+      }
+
+      @Override
+      public int size() {
+        return VideoCatalog.this.size();
+      }
+    };
+  }
+
+  /**
+   * Collects videos in load order into a catalog.
+   */
+  interface Builder {
+
+    /**
+     * Returns the dictionary of the catalog being built. Videos whose tags are interned here are
+     * added as they are; the tags of other videos are interned here when they are added.
+     */
+    TagDictionary tagDictionary();
+
+    /**
+     * Adds a video, giving it the next ordinal. A video with the id of one already added replaces
+     * it and takes over its ordinal; in that case this returns false.
+     */
+    boolean add(Video video);
+
+    VideoCatalog build();
+  }
+}
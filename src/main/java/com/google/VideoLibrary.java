@@ -1,55 +1,425 @@
 package com.google;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A class used to represent a Video Library.
+ *
+ * <p>A library is a {@link SharedCatalog} plus the flags set on its videos. Creating one over an
+ * already loaded catalog allocates next to nothing, so every session can have its own library,
+ * or sessions can share one. A library is safe to share between threads: flags live in a
+ * {@link FlagSet} that searches read without locking, and flagging and unflagging also update
+ * the random sampler under one lock, so each is atomic.
+ *
+ * <p>The catalog, the flags and the sampler, which are all indexed by ordinal, are held in one
+ * state object that {@link #reload} replaces as a whole. Every method reads the state once, so a
+ * search running during a reload sees either the old catalog or the new one, never a mix.
  */
 class VideoLibrary {
 
-  private final HashMap<String, Video> videos;
+  private final Object flagLock = new Object();
+  private volatile State state;
 
+  /**
+   * Creates a library over the catalog bundled with the application, which is only loaded once
+   * per process.
+   */
   VideoLibrary() {
-    this.videos = new HashMap<>();
-    try {
-      File file = new File(this.getClass().getResource("/videos.txt").getFile());
-
-      Scanner scanner = new Scanner(file);
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        String[] split = line.split("\\|");
-        String title = split[0].strip();
-        String id = split[1].strip();
-        List<String> tags;
-        if (split.length > 2) {
-          tags = Arrays.stream(split[2].split(",")).map(String::strip).collect(
-              Collectors.toList());
-        } else {
-          tags = new ArrayList<>();
+    this(SharedCatalog.bundled());
+  }
+
+  /**
+   * Loads the library from a catalog file in the {@code title | id | tags} format.
+   */
+  VideoLibrary(Path catalog) {
+    this(catalog, null, new HeapCatalog.Builder());
+  }
+
+  /**
+   * Loads the library by parsing chunks of the catalog file in parallel on the given pool.
+   * Videos are merged in file order, so the result matches the sequential constructor.
+   */
+  VideoLibrary(Path catalog, ForkJoinPool pool) {
+    this(catalog, pool, new HeapCatalog.Builder());
+  }
+
+  /**
+   * Loads the library into the catalog representation of the given builder, for example a
+   * {@link CompactCatalog.Builder}. The file is parsed in parallel if a pool is given.
+   */
+  VideoLibrary(Path catalog, ForkJoinPool pool, VideoCatalog.Builder builder) {
+    this(SharedCatalog.load(catalog, pool, builder));
+  }
+
+  /**
+   * Creates a library over an already built catalog.
+   */
+  VideoLibrary(VideoCatalog catalog) {
+    this(new SharedCatalog(catalog));
+  }
+
+  /**
+   * Creates a library over an already built catalog whose title order is known, as saved by
+   * {@link #getTitleOrder()}, so no titles need to be read. The search indexes are only built
+   * when first searched.
+   */
+  VideoLibrary(VideoCatalog catalog, int[] titleOrder) {
+    this(new SharedCatalog(catalog, titleOrder));
+  }
+
+  /**
+   * Creates a library with no flags over a shared catalog.
+   */
+  VideoLibrary(SharedCatalog shared) {
+    this.state = new State(shared, new FlagSet(shared.catalog().size()),
+        new RandomSampler(shared.catalog().size()), null, 0);
+  }
+
+  /**
+   * Returns the path of the catalog bundled with the application.
+   */
+  static Path defaultCatalog() {
+    return SharedCatalog.bundledPath();
+  }
+
+  /**
+   * Returns the catalog this library is built on, which other libraries can share.
+   */
+  SharedCatalog getSharedCatalog() {
+    return this.state.shared;
+  }
+
+  /**
+   * Returns how many times the catalog has been replaced by {@link #reload}. Videos obtained
+   * before the count changed may have moved or be gone; look them up again by id.
+   */
+  int getGeneration() {
+    return this.state.generation;
+  }
+
+  /**
+   * Returns a view of the library as it is now, which later reloads do not change. Reading a
+   * consistent copy of several parts, as a {@link Snapshot} does, should go through a view.
+   */
+  VideoLibrary view() {
+    return new VideoLibrary(this.state);
+  }
+
+  /**
+   * Replaces the catalog with another one, keeping the flags of videos whose ids are in both.
+   * Random weights set with {@link #setRandomWeights} are computed again for the new catalog.
+   * Build the new catalog's indexes first to keep them off the hot path; the swap itself only
+   * holds the flag lock while the flags are carried over.
+   */
+  void reload(SharedCatalog next) {
+    reload(next, () -> {});
+  }
+
+  /**
+   * Replaces the catalog as {@link #reload(SharedCatalog)} does, then runs the given action
+   * before releasing the flag lock, so that changes made through {@link #ifUnflagged} see either
+   * the old catalog and the state before the action, or the new catalog and the state after it.
+   */
+  void reload(SharedCatalog next, Runnable whileLocked) {
+    VideoCatalog catalog = next.catalog();
+    ToDoubleFunction<Video> weight = this.state.weight;
+    var sampler = new RandomSampler(catalog.size());
+    if (weight != null)
+      sampler.setWeights(weights(catalog, weight));
+    synchronized (this.flagLock) {
+      State previous = this.state;
+      if (previous.weight != weight)
+        sampler.setWeights(previous.weight != null ? weights(catalog, previous.weight) : null);
+      var flags = new FlagSet(catalog.size());
+      for (int ordinal : previous.flags.toArray()) {
+        int moved = catalog.ordinalOf(previous.catalog.get(ordinal).getVideoId());
+        if (moved >= 0) {
+          flags.add(moved, previous.flags.reason(ordinal));
+          sampler.remove(moved);
         }
-        this.videos.put(id, new Video(title, id, tags));
       }
-    } catch (FileNotFoundException e) {
-      System.out.println("Couldn't find videos.txt");
-      e.printStackTrace();
+      this.state = new State(next, flags, sampler, previous.weight, previous.generation + 1);
+      whileLocked.run();
     }
   }
 
+  /**
+   * Returns the number of videos in the library.
+   */
+  int size() {
+    return this.state.catalog.size();
+  }
+
   List<Video> getVideos() {
-    return new ArrayList<>(this.videos.values());
+    return new ArrayList<>(this.state.catalog.asList());
+  }
+
+  /**
+   * Returns the ordinals of all videos in title order.
+   */
+  int[] getTitleOrder() {
+    return this.state.titleOrder.toArray();
+  }
+
+  /**
+   * Returns up to {@code limit} videos in title order, starting at position {@code offset} of
+   * that order. Repeated calls with an advancing offset page through the whole library.
+   */
+  List<Video> getVideosByTitle(int offset, int limit) {
+    State state = this.state;
+    int from = Math.min(Math.max(offset, 0), state.titleOrder.size());
+    int to = (int) Math.min((long) from + Math.max(limit, 0), state.titleOrder.size());
+    List<Video> page = new ArrayList<>(to - from);
+    for (int rank = from; rank < to; rank++)
+      page.add(state.catalog.get(state.titleOrder.ordinalAt(rank)));
+    return page;
+  }
+
+  /**
+   * Returns an iterator over all videos in title order, without copying the library.
+   */
+  Iterator<Video> iterateByTitle() {
+    State state = this.state;
+    return new Iterator<>() {
+      private int position;
+
+      @Override
+      public boolean hasNext() {
+        return position < state.titleOrder.size();
+      }
+
+      @Override
+      public Video next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        return state.catalog.get(state.titleOrder.ordinalAt(position++));
+      }
+    };
+  }
+
+  /**
+   * Returns the video at the given ordinal.
+   */
+  Video getVideo(int ordinal) {
+    return this.state.catalog.get(ordinal);
+  }
+
+  /**
+   * Returns the reason the video was flagged, or null if it is not flagged.
+   */
+  String getFlag(Video video) {
+    State state = this.state;
+    if (state.flags.isEmpty())
+      return null;
+    int ordinal = state.ordinalOf(video);
+    return ordinal >= 0 ? state.flags.reason(ordinal) : null;
+  }
+
+  /**
+   * Flags a video with the given reason. Returns false, changing nothing, if it is already
+   * flagged or no longer in the library.
+   */
+  boolean flag(Video video, String reason) {
+    synchronized (this.flagLock) {
+      State state = this.state;
+      int ordinal = state.ordinalOf(video);
+      if (ordinal < 0 || !state.flags.add(ordinal, reason))
+        return false;
+      state.randomSampler.remove(ordinal);
+      return true;
+    }
+  }
+
+  /**
+   * Removes the flag from a video. Returns false if it was not flagged.
+   */
+  boolean unflag(Video video) {
+    synchronized (this.flagLock) {
+      State state = this.state;
+      int ordinal = state.ordinalOf(video);
+      if (ordinal < 0 || !state.flags.remove(ordinal))
+        return false;
+      state.randomSampler.add(ordinal);
+      return true;
+    }
+  }
+
+  /**
+   * Makes a change involving a video unless the video is flagged, holding the flag lock so it
+   * cannot be flagged, nor the catalog reloaded, while the change is made. The change is given
+   * the library's current video with the same id, which is the video itself unless the catalog
+   * was reloaded since it was looked up. Returns false if the video is flagged or no longer in
+   * the library, or if the change returns false.
+   */
+  boolean ifUnflagged(Video video, Predicate<Video> change) {
+    synchronized (this.flagLock) {
+      State state = this.state;
+      int ordinal = state.ordinalOf(video);
+      if (ordinal < 0 || state.flags.contains(ordinal))
+        return false;
+      return change.test(state.generation == 0 ? video : state.catalog.get(ordinal));
+    }
+  }
+
+  /**
+   * Returns the number of flagged videos.
+   */
+  int countFlagged() {
+    return this.state.flags.size();
+  }
+
+  /**
+   * Returns the flagged videos in title order.
+   */
+  List<Video> getFlaggedVideos() {
+    State state = this.state;
+    int[] flaggedOrdinals = state.flags.toArray();
+    state.titleOrder.sort(flaggedOrdinals);
+    List<Video> result = new ArrayList<>(flaggedOrdinals.length);
+    for (int ordinal : flaggedOrdinals)
+      result.add(state.catalog.get(ordinal));
+    return result;
+  }
+
+  /**
+   * Returns a random unflagged video, or null if every video is flagged.
+   */
+  Video getRandomVideo() {
+    State state = this.state;
+    int ordinal = state.randomSampler.sample();
+    return ordinal >= 0 ? state.catalog.get(ordinal) : null;
+  }
+
+  /**
+   * Makes {@link #getRandomVideo()} pick videos with probability proportional to the given
+   * weight, for example to favour a tag or popular videos. Passing null restores uniform picks.
+   */
+  void setRandomWeights(ToDoubleFunction<Video> weight) {
+    synchronized (this.flagLock) {
+      State state = this.state;
+      state.randomSampler.setWeights(weight != null ? weights(state.catalog, weight) : null);
+      this.state = new State(state.shared, state.flags, state.randomSampler, weight,
+          state.generation);
+    }
+  }
+
+  /**
+   * Returns the unflagged videos whose title contains the search term, ignoring case, in title
+   * order.
+   */
+  List<Video> searchTitles(String searchTerm) {
+    State state = this.state;
+    return state.toVideos(state.shared.titleIndex().search(searchTerm));
+  }
+
+  /**
+   * Returns the unflagged videos with exactly the given tag, ignoring case, in title order.
+   */
+  List<Video> searchTag(String tag) {
+    State state = this.state;
+    return state.toVideos(state.shared.tagIndex().exact(tag));
+  }
+
+  /**
+   * Returns the unflagged videos with a tag starting with the given prefix, ignoring case, in
+   * title order. Each video appears at most once.
+   */
+  List<Video> searchTagPrefix(String prefix) {
+    State state = this.state;
+    return state.toVideos(state.shared.tagIndex().prefix(prefix));
+  }
+
+  /**
+   * Returns the unflagged videos matching a boolean tag query such as
+   * {@code #cat AND #animal NOT #google}, in title order. Throws an
+   * {@link IllegalArgumentException} if the query is malformed.
+   */
+  List<Video> queryTags(String query) {
+    State state = this.state;
+    return state.toVideos(
+        TagQuery.parse(query).evaluate(state.shared.tagIndex(), state.catalog.size()));
   }
 
   /**
    * Get a video by id. Returns null if the video is not found.
    */
   Video getVideo(String videoId) {
-    return this.videos.get(videoId);
+    State state = this.state;
+    int ordinal = state.catalog.ordinalOf(videoId);
+    return ordinal >= 0 ? state.catalog.get(ordinal) : null;
+  }
+
+  // helper methods
+  private VideoLibrary(State state) {
+    this.state = state;
+  }
+
+  private static double[] weights(VideoCatalog catalog, ToDoubleFunction<Video> weight) {
+    double[] weights = new double[catalog.size()];
+    for (int ordinal = 0; ordinal < weights.length; ordinal++)
+      weights[ordinal] = weight.applyAsDouble(catalog.get(ordinal));
+    return weights;
+  }
+
+  /**
+   * One version of the library: a catalog and the flags and sampler indexed by its ordinals.
+   */
+  private static final class State {
+    final SharedCatalog shared;
+    final VideoCatalog catalog;
+    final TitleOrder titleOrder;
+    final FlagSet flags;
+    final RandomSampler randomSampler;
+    final ToDoubleFunction<Video> weight;
+    final int generation;
+
+    State(SharedCatalog shared, FlagSet flags, RandomSampler randomSampler,
+        ToDoubleFunction<Video> weight, int generation) {
+      this.shared = shared;
+      this.catalog = shared.catalog();
+      this.titleOrder = shared.titleOrder();
+      this.flags = flags;
+      this.randomSampler = randomSampler;
+      this.weight = weight;
+      this.generation = generation;
+    }
+
+    /**
+     * Returns the ordinal of the video in this version, or -1 if it is not in it. Until the first
+     * reload every video comes from this catalog; after that it may come from an earlier one, so
+     * it is looked up by id.
+     */
+    int ordinalOf(Video video) {
+      return generation == 0 ? video.getOrdinal() : catalog.ordinalOf(video.getVideoId());
+    }
+
+    /**
+     * Maps ordinals to videos in title order, leaving out flagged ones. The ordinals are not
+     * modified.
+     */
+    List<Video> toVideos(int[] ordinals) {
+      int[] unflagged = new int[ordinals.length];
+      int count = 0;
+      boolean anyFlagged = !flags.isEmpty();
+      for (int ordinal : ordinals)
+        if (!anyFlagged || !flags.contains(ordinal))
+          unflagged[count++] = ordinal;
+      if (count < unflagged.length)
+        unflagged = Arrays.copyOf(unflagged, count);
+      titleOrder.sort(unflagged);
+
+      List<Video> result = new ArrayList<>(count);
+      for (int ordinal : unflagged)
+        result.add(catalog.get(ordinal));
+      return result;
+    }
   }
 }
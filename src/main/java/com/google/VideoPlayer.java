@@ -1,338 +1,570 @@
 package com.google;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class VideoPlayer {
 
-  private final List<VideoPlaylist> playlists;
+  /**
+   * What became of a change to the shared state.
+   */
+  private enum Outcome {
+    MADE, REFUSED, NOT_SAVED
+  }
+
+  private final PlaylistRegistry playlists;
   private final VideoLibrary videoLibrary;
+  private final Output out;
+  private MutationLog log;
   private Video current;
   private boolean paused;
+  private List<Video> results = List.of();
+  // the library generation that current and results were taken from
+  private int generation;
 
   public VideoPlayer() {
+    this(new VideoLibrary());
+  }
+
+  VideoPlayer(VideoLibrary videoLibrary) {
+    this(videoLibrary, new Output(System.out));
+  }
+
+  VideoPlayer(VideoLibrary videoLibrary, Output out) {
+    this(videoLibrary, new PlaylistRegistry(), out);
+  }
+
+  /**
+   * Creates a player with existing playlists, for example restored from a {@link Snapshot}.
+   */
+  VideoPlayer(VideoLibrary videoLibrary, PlaylistRegistry playlists, Output out) {
     this.paused = false;
-    this.playlists = new ArrayList<>();
-    this.videoLibrary = new VideoLibrary();
+    this.playlists = playlists;
+    this.videoLibrary = videoLibrary;
+    this.out = out;
+    this.generation = videoLibrary.getGeneration();
+  }
+
+  VideoLibrary getVideoLibrary() {
+    return videoLibrary;
+  }
+
+  PlaylistRegistry getPlaylists() {
+    return playlists;
+  }
+
+  Output getOutput() {
+    return out;
+  }
+
+  /**
+   * Returns a new session sharing this player's library, playlists and mutation log, but with
+   * its own playback state and output. Sessions can run on different threads at once; each one
+   * should only be used by one thread at a time.
+   */
+  VideoPlayer newSession(Output out) {
+    VideoPlayer session = new VideoPlayer(videoLibrary, playlists, out);
+    session.log = log;
+    return session;
+  }
+
+  /**
+   * Loads a new version of a catalog file and swaps it in for this player and all its sessions,
+   * keeping the flags, playlist entries and playing videos whose ids are still in it. The new
+   * catalog has the same representation as the current one. Parsing and building the search
+   * indexes happen on the given pool, or the common pool if it is null, while sessions keep using
+   * the old catalog. The future fails if the file cannot be read, in which case nothing changes.
+   */
+  CompletableFuture<Void> reloadCatalog(Path catalog, ForkJoinPool pool) {
+    ForkJoinPool executor = pool != null ? pool : ForkJoinPool.commonPool();
+    VideoCatalog.Builder builder = videoLibrary.getSharedCatalog().catalog().newBuilder();
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return SharedCatalog.read(catalog, pool, builder).withIndexes();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor).thenAccept(this::swapCatalog);
+  }
+
+  /**
+   * Swaps a loaded catalog in for this player and all its sessions, as {@link #reloadCatalog}
+   * does once the catalog is built. Playlists are moved to the new catalog's videos under the
+   * library's flag lock, the lock adding to a playlist holds, so no playlist is left with a video
+   * of the old catalog; each session moves its playing video and search results on its next
+   * command.
+   */
+  void swapCatalog(SharedCatalog next) {
+    videoLibrary.reload(next,
+        () -> playlists.replaceVideos(video -> videoLibrary.getVideo(video.getVideoId())));
+  }
+
+  /**
+   * Records every playlist and flag change in the given log before it is reported, or stops
+   * recording if the log is null.
+   */
+  void setMutationLog(MutationLog log) {
+    this.log = log;
   }
 
   public void numberOfVideos() {
-    System.out.printf("%s videos in the library%n", videoLibrary.getVideos().size());
+    out.print(videoLibrary.size()).println(" videos in the library");
+    out.flush();
   }
 
   public void showAllVideos() {
-    List<Video> videos = videoLibrary.getVideos();
-    sortByTitle(videos);
+    out.println("Here's a list of all available videos:");
+    showDescription(videoLibrary.iterateByTitle());
+    out.flush();
+  }
 
-    System.out.println("Here's a list of all available videos:");
-    showDescription(videos);
+  public void showAllVideos(int page, int pageSize) {
+    int pages = pageCount(videoLibrary.size(), pageSize);
+    if (checkPage(page, pageSize, pages)) {
+      out.print("Here's page ").print(page).print(" of ").print(pages)
+          .println(" of all available videos:");
+      showDescription(videoLibrary.getVideosByTitle((page - 1) * pageSize, pageSize).iterator());
+    }
+    out.flush();
   }
 
   public void playVideo(String videoId) {
-    Video video = videoLibrary.getVideo(videoId);
-    if (video != null) {
-      if (video.getFlag() == null) {
-        if (current != null)
-          stopVideo();
-        System.out.printf("Playing video: %s%n", video.getTitle());
-        current = video;
-        paused = false;
-      } else
-        System.out.printf("Cannot play video: Video is currently flagged (reason: %s)%n", video.getFlag());
-    } else
-      System.out.println("Cannot play video: Video does not exist");
+    sync();
+    play(videoLibrary.getVideo(videoId));
+    out.flush();
   }
 
   public void stopVideo() {
-    if (this.current != null)
-      System.out.printf("Stopping video: %s%n", current.getTitle());
-    else
-      System.out.println("Cannot stop video: No video is currently playing");
-    current = null;
+    sync();
+    stop();
+    out.flush();
   }
 
   public void playRandomVideo() {
-    List<Video> videos = videoLibrary.getVideos();
-    List<Integer> indices = new ArrayList<>();
-    for (int i = 0; i < videos.size(); i++)
-      indices.add(i);
-    Collections.shuffle(indices);
-
-    int index = 0;
-    boolean success = false;
-    while (!success && index < indices.size()) {
-      Video video = videos.get(index);
-      if (video.getFlag() == null) {
-        playVideo(video.getVideoId());
-        success = true;
-      }
-      index++;
-    }
-
-    if (!success)
-      System.out.println("No videos available");
+    sync();
+    Video video = videoLibrary.getRandomVideo();
+    if (video != null)
+      play(video);
+    else
+      out.println("No videos available");
+    out.flush();
   }
 
   public void pauseVideo() {
+    sync();
     if (current == null)
-      System.out.println("Cannot pause video: No video is currently playing");
+      out.println("Cannot pause video: No video is currently playing");
     else if (paused)
-      System.out.printf("Video already paused: %s%n", current.getTitle());
+      out.print("Video already paused: ").println(current.getTitle());
     else {
-      System.out.printf("Pausing video: %s%n", current.getTitle());
+      out.print("Pausing video: ").println(current.getTitle());
       paused = true;
     }
+    out.flush();
   }
 
   public void continueVideo() {
+    sync();
     if (current == null)
-      System.out.println("Cannot continue video: No video is currently playing");
+      out.println("Cannot continue video: No video is currently playing");
     else if (!paused)
-      System.out.println("Cannot continue video: Video is not paused");
+      out.println("Cannot continue video: Video is not paused");
     else {
-      System.out.printf("Continuing video: %s%n", current.getTitle());
+      out.print("Continuing video: ").println(current.getTitle());
       paused = true;
     }
+    out.flush();
   }
 
   public void showPlaying() {
+    sync();
     if (current != null) {
-      String extension = (paused) ? " - PAUSED" : "";
-      System.out.printf("Currently playing: %s (%s) [%s]%s%n", current.getTitle(), current.getVideoId(), String.join(" ", current.getTags()), extension);
+      out.print("Currently playing: ");
+      describe(current);
+      out.println(paused ? " - PAUSED" : "");
     } else
-      System.out.println("No video is currently playing");
+      out.println("No video is currently playing");
+    out.flush();
   }
 
   public void createPlaylist(String playlistName) {
-    if (!playlists.stream().map(VideoPlaylist::getName).map(String::toLowerCase).collect(Collectors.toList()).contains(playlistName.toLowerCase())) {
-      playlists.add(new VideoPlaylist(playlistName));
-      System.out.printf("Successfully created new playlist: %s%n", playlistName);
-    } else
-      System.out.println("Cannot create playlist: A playlist with the same name already exists");
+    Outcome outcome = change("create playlist", () -> playlists.create(playlistName) != null,
+        log -> log.createPlaylist(playlistName));
+    if (outcome == Outcome.MADE)
+      out.print("Successfully created new playlist: ").println(playlistName);
+    else if (outcome == Outcome.REFUSED)
+      out.println("Cannot create playlist: A playlist with the same name already exists");
+    out.flush();
   }
 
   public void addVideoToPlaylist(String playlistName, String videoId) {
-    String message = "";
     Video video = videoLibrary.getVideo(videoId);
-    if (video != null && video.getFlag() != null) {
-      System.out.printf("Cannot add video to %s: Video is currently flagged (reason: %s)%n", playlistName, video.getFlag());
-      return;
-    }
-
-    if (!playlists.isEmpty()) {
-      for (VideoPlaylist playlist : playlists) {
-        if (playlist.getName().equalsIgnoreCase(playlistName)) {
-          if (!playlist.contains(video)) {
-            playlist.addVideo(video);
-            if (video != null)
-              System.out.printf("Added video to %s: %s%n", playlistName, video.getTitle());
-          } else
-            System.out.printf("Cannot add video to %s: Video already added%n", playlistName);
-        }
+    VideoPlaylist playlist = playlists.get(playlistName);
+    String flag = video != null ? videoLibrary.getFlag(video) : null;
+    if (flag != null)
+      out.print("Cannot add video to ").print(playlistName)
+          .print(": Video is currently flagged (reason: ").print(flag).println(")");
+    else if (playlist == null)
+      out.print("Cannot add video to ").print(playlistName).println(": Playlist does not exist");
+    else if (video == null)
+      out.print("Cannot add video to ").print(playlistName).println(": Video does not exist");
+    else {
+      Outcome outcome = change("add video to " + playlistName,
+          () -> videoLibrary.ifUnflagged(video, playlist::addVideo),
+          log -> log.addToPlaylist(playlistName, videoId));
+      if (outcome == Outcome.MADE)
+        out.print("Added video to ").print(playlistName).print(": ").println(video.getTitle());
+      else if (outcome == Outcome.REFUSED) {
+        // another session may have flagged the video, or a reload removed it, since the check
+        Video current = videoLibrary.getVideo(videoId);
+        String reason = current != null ? videoLibrary.getFlag(current) : null;
+        if (current == null)
+          out.print("Cannot add video to ").print(playlistName).println(": Video does not exist");
+        else if (reason != null)
+          out.print("Cannot add video to ").print(playlistName)
+              .print(": Video is currently flagged (reason: ").print(reason).println(")");
+        else
+          out.print("Cannot add video to ").print(playlistName).println(": Video already added");
       }
-    } else
-      message = String.format("Cannot add video to %s: Playlist does not exist%n", playlistName);
-    if (video == null && message.isEmpty())
-      message = String.format("Cannot add video to %s: Video does not exist%n", playlistName);
-
-    System.out.print(message);
-
+    }
+    out.flush();
   }
 
   public void showAllPlaylists() {
     if (!playlists.isEmpty()) {
-      Comparator<VideoPlaylist> compareByTitle = Comparator.comparing(VideoPlaylist::getName);
-      playlists.sort(compareByTitle);
-      System.out.println("Showing all playlists:");
-      for (VideoPlaylist playlist : playlists)
-        System.out.println(playlist.getName());
+      out.println("Showing all playlists:");
+      for (VideoPlaylist playlist : playlists.sorted())
+        out.println(playlist.getName());
     } else
-      System.out.println("No playlists exist yet");
+      out.println("No playlists exist yet");
+    out.flush();
   }
 
   public void showPlaylist(String playlistName) {
-    boolean found = false;
-    for (VideoPlaylist playlist : playlists) {
-      if (playlist.getName().equalsIgnoreCase(playlistName)) {
-        System.out.printf("Showing playlist: %s%n", playlistName);
-        if (!playlist.isEmpty())
-          showDescription(playlist.getVideos());
-        else
-          System.out.println("No videos here yet");
-        found = true;
+    VideoPlaylist playlist = playlists.get(playlistName);
+    if (playlist != null) {
+      out.print("Showing playlist: ").println(playlistName);
+      if (!playlist.isEmpty())
+        showDescription(playlist.getVideos().iterator());
+      else
+        out.println("No videos here yet");
+    } else
+      out.print("Cannot show playlist ").print(playlistName).println(": Playlist does not exist");
+    out.flush();
+  }
+
+  public void showPlaylist(String playlistName, int page, int pageSize) {
+    VideoPlaylist playlist = playlists.get(playlistName);
+    if (playlist == null)
+      out.print("Cannot show playlist ").print(playlistName).println(": Playlist does not exist");
+    else if (playlist.isEmpty()) {
+      out.print("Showing playlist: ").println(playlistName);
+      out.println("No videos here yet");
+    } else {
+      int pages = pageCount(playlist.size(), pageSize);
+      if (checkPage(page, pageSize, pages)) {
+        out.print("Showing playlist: ").print(playlistName)
+            .print(" (page ").print(page).print(" of ").print(pages).println(")");
+        showDescription(playlist.getVideos((page - 1) * pageSize, pageSize).iterator());
       }
     }
-    if (!found)
-      System.out.printf("Cannot show playlist %s: Playlist does not exist", playlistName);
+    out.flush();
   }
 
   public void removeFromPlaylist(String playlistName, String videoId) {
-    boolean found = false;
-    boolean exists = true;
-
-    for (VideoPlaylist playlist : playlists) {
-      if (playlist.getName().equalsIgnoreCase(playlistName)) {
-        Video video = videoLibrary.getVideo(videoId);
-        if (video == null) {
-          System.out.printf("Cannot remove video from %s: Video does not exist%n", playlistName);
-          return;
-        }
-        if (playlist.contains(video)) {
-          playlist.removeVideo(video);
-          System.out.printf("Removed video from %s: %s%n", playlistName, video.getTitle());
-          found = true;
-        } else {
-          System.out.printf("Cannot remove video from %s: Video is not in playlist%n", playlistName);
-          exists = false;
-        }
-      }
+    VideoPlaylist playlist = playlists.get(playlistName);
+    Video video = videoLibrary.getVideo(videoId);
+    if (playlist == null)
+      out.print("Cannot remove video from ").print(playlistName)
+          .println(": Playlist does not exist");
+    else if (video == null)
+      out.print("Cannot remove video from ").print(playlistName).println(": Video does not exist");
+    else {
+      Outcome outcome = change("remove video from " + playlistName,
+          () -> playlist.removeVideo(video), log -> log.removeFromPlaylist(playlistName, videoId));
+      if (outcome == Outcome.MADE)
+        out.print("Removed video from ").print(playlistName).print(": ").println(video.getTitle());
+      else if (outcome == Outcome.REFUSED)
+        out.print("Cannot remove video from ").print(playlistName)
+            .println(": Video is not in playlist");
     }
-    if (!found && exists || playlists.isEmpty())
-      System.out.printf("Cannot remove video from %s: Playlist does not exist%n", playlistName);
+    out.flush();
   }
 
   public void clearPlaylist(String playlistName) {
-    boolean found = false;
-    if (!playlists.isEmpty()) {
-      for (VideoPlaylist playlist : playlists) {
-        if (playlist.getName().equalsIgnoreCase(playlistName)) {
-          playlist.clear();
-          System.out.printf("Successfully removed all videos from %s%n", playlistName);
-          found = true;
-        }
-      }
-    }
-    if (!found)
-      System.out.printf("Cannot clear playlist %s: Playlist does not exist%n", playlistName);
+    VideoPlaylist playlist = playlists.get(playlistName);
+    if (playlist != null) {
+      Outcome outcome = change("clear playlist " + playlistName, () -> {
+        playlist.clear();
+        return true;
+      }, log -> log.clearPlaylist(playlistName));
+      if (outcome == Outcome.MADE)
+        out.print("Successfully removed all videos from ").println(playlistName);
+    } else
+      out.print("Cannot clear playlist ").print(playlistName).println(": Playlist does not exist");
+    out.flush();
   }
 
   public void deletePlaylist(String playlistName) {
-    boolean found = false;
-    for (VideoPlaylist playlist : playlists) {
-      if (playlist.getName().equalsIgnoreCase(playlistName)) {
-        System.out.printf("Deleted playlist: %s%n", playlistName);
-        found = true;
-      }
-    }
-    if (!found)
-      System.out.printf("Cannot delete playlist %s: Playlist does not exist%n", playlistName);
+    Outcome outcome = change("delete playlist " + playlistName,
+        () -> playlists.delete(playlistName), log -> log.deletePlaylist(playlistName));
+    if (outcome == Outcome.MADE)
+      out.print("Deleted playlist: ").println(playlistName);
+    else if (outcome == Outcome.REFUSED)
+      out.print("Cannot delete playlist ").print(playlistName).println(": Playlist does not exist");
+    out.flush();
   }
 
-  public void searchVideos(String searchTerm) {
-    List<Video> matches = new ArrayList<>();
-    for (Video video : videoLibrary.getVideos()) {
-      String title = video.getTitle().toLowerCase();
-      if (title.contains(searchTerm.toLowerCase()) && video.getFlag() == null)
-        matches.add(video);
+  /**
+   * Lists the videos whose titles contain the search term and returns them. They stay in this
+   * session's results, from which {@link #playResult(int)} plays one.
+   */
+  public List<Video> searchVideos(String searchTerm) {
+    sync();
+    offerResults(searchTerm, videoLibrary.searchTitles(searchTerm));
+    out.flush();
+    return results;
+  }
+
+  /**
+   * Lists the videos with a tag starting with the given one and returns them. They stay in this
+   * session's results, from which {@link #playResult(int)} plays one.
+   */
+  public List<Video> searchVideosWithTag(String videoTag) {
+    sync();
+    if (videoTag.startsWith("#")) // eliminate edge case
+      // tags start with '#', so matching a '#' term anywhere in a tag is a prefix match
+      offerResults(videoTag, videoLibrary.searchTagPrefix(videoTag));
+    else
+      offerResults(videoTag, List.of());
+    out.flush();
+    return results;
+  }
+
+  /**
+   * Plays the video with the given 1-based number in the results of this session's last search.
+   * A result whose video was removed by a catalog reload keeps its number but cannot be played.
+   */
+  public void playResult(int number) {
+    sync();
+    if (results.isEmpty())
+      out.println("Cannot play result: No search results to choose from");
+    else if (number < 1 || number > results.size())
+      out.print("Cannot play result: Result ").print(number).println(" does not exist");
+    else
+      play(results.get(number - 1));
+    out.flush();
+  }
+
+  public void queryTags(String query) {
+    List<Video> matches;
+    try {
+      matches = videoLibrary.queryTags(query);
+    } catch (IllegalArgumentException e) {
+      out.print("Invalid tag query: ").println(e.getMessage());
+      out.flush();
+      return;
     }
 
     if (!matches.isEmpty()) {
-      System.out.printf("Here are the results for %s:%n", searchTerm);
+      out.print("Here are the results for ").print(query).println(":");
       listVideos(matches);
+    } else
+      out.print("No search results for ").println(query);
+    out.flush();
+  }
 
-      System.out.println("Would you like to play any of the above? If yes, specify the number of the video.");
-      System.out.println("If your answer is not a valid number, we will assume it's a no.");
-      Scanner in = new Scanner(System.in);
+  public void flagVideo(String videoId) {
+    flagVideo(videoId, "Not supplied");
+  }
 
-      if (in.hasNextInt()) {
-        int choice = in.nextInt();
-        if (choice <= matches.size() && choice >= 1)
-          playVideo(matches.get(choice - 1).getVideoId());
-      }
+  public void flagVideo(String videoId, String reason) {
+    sync();
+    Video video = videoLibrary.getVideo(videoId);
+    if (video != null) {
+      Outcome outcome = change("flag video", () -> videoLibrary.flag(video, reason),
+          log -> log.flagVideo(videoId, reason));
+      if (outcome == Outcome.MADE) {
+        if (video.equals(current))
+          stop();
+        out.print("Successfully flagged video: ").print(video.getTitle())
+            .print(" (reason: ").print(reason).println(")");
+      } else if (outcome == Outcome.REFUSED)
+        out.println("Cannot flag video: Video is already flagged");
+    } else
+      out.println("Cannot flag video: Video does not exist");
+    out.flush();
+  }
 
+  public void allowVideo(String videoId) {
+    Video video = videoLibrary.getVideo(videoId);
+    if (video != null) {
+      Outcome outcome = change("remove flag from video", () -> videoLibrary.unflag(video),
+          log -> log.allowVideo(videoId));
+      if (outcome == Outcome.MADE)
+        out.print("Successfully removed flag from video: ").println(video.getTitle());
+      else if (outcome == Outcome.REFUSED)
+        out.println("Cannot remove flag from video: Video is not flagged");
     } else
-      System.out.printf("No search results for %s%n", searchTerm);
+      out.println("Cannot remove flag from video: Video does not exist");
+    out.flush();
   }
 
-  public void searchVideosWithTag(String videoTag) {
-    if (videoTag.startsWith("#")) { // eliminate edge case
-      List<Video> matches = new ArrayList<>();
-      for (Video video : videoLibrary.getVideos()) {
-        for (String tag : video.getTags()) {
-          if (tag.toLowerCase().contains(videoTag.toLowerCase()) && video.getFlag() == null)
-            matches.add(video);
-        }
-      }
-      if (!matches.isEmpty()) {
-        System.out.printf("Here are the results for %s:%n", videoTag);
-        listVideos(matches);
+  public void showFlaggedVideos() {
+    if (videoLibrary.countFlagged() > 0) {
+      List<Video> videos = videoLibrary.getFlaggedVideos();
+      out.println("Here's a list of all flagged videos:");
+      showDescription(videos.iterator());
+    } else
+      out.println("No videos are currently flagged");
+    out.flush();
+  }
+
+  // helper methods
 
-        System.out.println("Would you like to play any of the above? If yes, specify the number of the video.");
-        System.out.println("If your answer is not a valid number, we will assume it's a no.");
-        Scanner in = new Scanner(System.in);
+  /**
+   * Makes a change to the shared state and, if it was made, records it in the mutation log.
+   * With a log, both happen under the log's lock, so changes from concurrent sessions are logged
+   * in the order they were made. If the log cannot record the change, this prints
+   * {@code Cannot <action>: ...} and returns {@link Outcome#NOT_SAVED}; the caller prints the
+   * reply for the other outcomes.
+   */
+  private Outcome change(String action, BooleanSupplier change, Consumer<MutationLog> record) {
+    MutationLog log = this.log;
+    try {
+      boolean made = log != null ? log.logged(change, record) : change.getAsBoolean();
+      return made ? Outcome.MADE : Outcome.REFUSED;
+    } catch (UncheckedIOException e) {
+      out.print("Cannot ").print(action).println(": Change could not be saved");
+      return Outcome.NOT_SAVED;
+    }
+  }
 
-        if (in.hasNextInt()) {
-          int choice = in.nextInt();
-          if (choice <= matches.size() && choice >= 1)
-            playVideo(matches.get(choice - 1).getVideoId());
-        }
+  /**
+   * Moves the playing video and search results to the library's current catalog if it was
+   * reloaded since this session last looked. A playing video that is gone is stopped silently;
+   * a result that is gone stays as a gap, so the other results keep their numbers.
+   */
+  private void sync() {
+    int latest = videoLibrary.getGeneration();
+    if (latest == generation)
+      return;
+    generation = latest;
+    if (current != null) {
+      current = videoLibrary.getVideo(current.getVideoId());
+      if (current == null)
+        paused = false;
+    }
+    if (!results.isEmpty()) {
+      List<Video> moved = new ArrayList<>(results.size());
+      for (Video video : results)
+        moved.add(video != null ? videoLibrary.getVideo(video.getVideoId()) : null);
+      results = moved;
+    }
+  }
 
+  private void play(Video video) {
+    if (video != null) {
+      String flag = videoLibrary.getFlag(video);
+      if (flag == null) {
+        if (current != null)
+          stop();
+        out.print("Playing video: ").println(video.getTitle());
+        current = video;
+        paused = false;
       } else
-        System.out.printf("No search results for %s%n", videoTag);
+        out.print("Cannot play video: Video is currently flagged (reason: ")
+            .print(flag).println(")");
     } else
-      System.out.printf("No search results for %s%n", videoTag);
+      out.println("Cannot play video: Video does not exist");
   }
 
-  public void flagVideo(String videoId) {
-    Video video = videoLibrary.getVideo(videoId);
-    if (video != null)
-      if (video.getFlag() == null) {
-        video.flag("Not supplied");
-        if (video == current)
-          stopVideo();
-        System.out.printf("Successfully flagged video: %s (reason: %s)%n", video.getTitle(), "Not supplied");
-      } else
-        System.out.println("Cannot flag video: Video is already flagged");
+  private void stop() {
+    if (this.current != null)
+      out.print("Stopping video: ").println(current.getTitle());
     else
-      System.out.println("Cannot flag video: Video does not exist");
+      out.println("Cannot stop video: No video is currently playing");
+    current = null;
   }
 
-  public void flagVideo(String videoId, String reason) {
-    Video video = videoLibrary.getVideo(videoId);
-    if (video != null)
-      if (video.getFlag() == null) {
-        video.flag(reason);
-        if (video == current)
-          stopVideo();
-        System.out.printf("Successfully flagged video: %s (reason: %s)%n", video.getTitle(), reason);
-      } else
-        System.out.println("Cannot flag video: Video is already flagged");
-    else
-      System.out.println("Cannot flag video: Video does not exist");
+  /**
+   * Lists search results and keeps them as this session's results, so that a later
+   * {@code PLAY_RESULT} command can pick one without the search waiting for an answer.
+   */
+  private void offerResults(String searchTerm, List<Video> matches) {
+    results = matches;
+    if (!matches.isEmpty()) {
+      out.print("Here are the results for ").print(searchTerm).println(":");
+      listVideos(matches);
+      out.println("Would you like to play any of the above? If yes, enter PLAY_RESULT followed by "
+          + "the number of the video.");
+    } else
+      out.print("No search results for ").println(searchTerm);
   }
 
-  public void allowVideo(String videoId) {
-    Video video = videoLibrary.getVideo(videoId);
-    if (video != null)
-      if (video.getFlag() != null) {
-        video.unflag();
-        System.out.printf("Successfully removed flag from video: %s%n", video.getTitle());
-      } else
-        System.out.println("Cannot remove flag from video: Video is not flagged");
-    else
-      System.out.println("Cannot remove flag from video: Video does not exist");
+  /**
+   * Prints {@code title (id) [tags]} without a line break.
+   */
+  private void describe(Video video) {
+    out.print(video.getTitle()).print(" (").print(video.getVideoId()).print(") [");
+    int[] tagIds = video.getTagIds();
+    for (int i = 0; i < tagIds.length; i++) {
+      if (i > 0)
+        out.print(' ');
+      out.print(video.getTagDictionary().name(tagIds[i]));
+    }
+    out.print(']');
+  }
 
+  private void showDescription(Iterator<Video> videos) {
+    while (videos.hasNext()) {
+      Video video = videos.next();
+      describe(video);
+      String flag = videoLibrary.getFlag(video);
+      if (flag != null)
+        out.print(" - FLAGGED (reason: ").print(flag).println(")");
+      else
+        out.print('\n');
+      out.spill();
+    }
   }
 
-  // helper methods
-  private void sortByTitle(List<Video> videos) {
-    Comparator<Video> compareByTitle = Comparator.comparing(Video::getTitle);
-    videos.sort(compareByTitle);
+  private static int pageCount(int items, int pageSize) {
+    return pageSize > 0 ? Math.max(1, (items + pageSize - 1) / pageSize) : 0;
   }
 
-  private void showDescription(List<Video> videos) {
-    for (Video video : videos) {
-      String description = String.format("%s (%s) [%s]", video.getTitle(), video.getVideoId(), String.join(" ", video.getTags()));
-      description = (video.getFlag() != null) ? description + String.format(" - FLAGGED (reason: %s)%n", video.getFlag()) : description + "\n";
-      System.out.print(description);
+  /**
+   * Prints why a page cannot be shown and returns false, or returns true if it can.
+   */
+  private boolean checkPage(int page, int pageSize, int pages) {
+    if (page < 1 || pageSize < 1) {
+      out.print("Cannot show page ").print(page)
+          .println(": Page number and page size must be positive");
+      return false;
+    }
+    if (page > pages) {
+      out.print("Cannot show page ").print(page).print(": There are only ").print(pages)
+          .println(" pages");
+      return false;
     }
+    return true;
   }
 
+  /**
+   * Prints a numbered list of videos, which the library returns in title order.
+   */
   private void listVideos(List<Video> videos) {
-    sortByTitle(videos);
     int count = 1;
     for (Video video : videos) {
-      System.out.printf("%d) %s (%s) [%s]%n", count, video.getTitle(), video.getVideoId(), String.join(" ", video.getTags()));
+      out.print(count).print(") ");
+      describe(video);
+      out.println();
       count++;
     }
   }
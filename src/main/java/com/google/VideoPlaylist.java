@@ -1,46 +1,97 @@
 package com.google;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * A class used to represent a Playlist
+ *
+ * <p>Videos are held in a linked hash set, so membership checks, adds and removes are constant
+ * time while the playlist still lists its videos in the order they were added. Every method
+ * holds the playlist's own lock, so operations on one playlist are atomic and sessions working on
+ * different playlists never contend.
  */
 class VideoPlaylist {
-  String name;
-  List<Video> videos;
+  private final String name;
+  private final LinkedHashSet<Video> videos;
 
   public VideoPlaylist(String name) {
     this.name = name;
-    videos = new ArrayList<>();
+    videos = new LinkedHashSet<>();
   }
 
   String getName() {
     return name;
   }
 
-  void addVideo(Video video) {
-    videos.add(video);
+  /**
+   * Adds a video to the end of the playlist. Returns false if it is already in the playlist.
+   */
+  synchronized boolean addVideo(Video video) {
+    return videos.add(video);
   }
 
-  List<Video> getVideos() {
-    return videos;
+  /**
+   * Returns a readonly copy of the videos in the order they were added.
+   */
+  synchronized Collection<Video> getVideos() {
+    return List.copyOf(videos);
   }
 
-  boolean contains(Video video) {
+  /**
+   * Returns up to {@code limit} videos starting at position {@code offset}, in the order they were
+   * added. Reaching the offset walks the playlist from its start.
+   */
+  synchronized List<Video> getVideos(int offset, int limit) {
+    List<Video> page = new ArrayList<>(Math.max(0, Math.min(limit, videos.size() - offset)));
+    Iterator<Video> iterator = videos.iterator();
+    for (int i = 0; i < offset && iterator.hasNext(); i++)
+      iterator.next();
+    while (page.size() < limit && iterator.hasNext())
+      page.add(iterator.next());
+    return page;
+  }
+
+  synchronized boolean contains(Video video) {
     return videos.contains(video);
   }
 
-  boolean isEmpty() {
+  synchronized boolean isEmpty() {
     return videos.isEmpty();
   }
 
-  void removeVideo(Video video) {
-    videos.remove(video);
+  synchronized int size() {
+    return videos.size();
+  }
+
+  /**
+   * Removes a video, keeping the order of the others. Returns false if it was not in the playlist.
+   */
+  synchronized boolean removeVideo(Video video) {
+    return videos.remove(video);
+  }
+
+  synchronized void clear() {
+    videos.clear();
   }
 
-  void clear() {
+  /**
+   * Replaces every video with the one the given function returns for it, keeping the order, and
+   * drops the videos it returns null for.
+   */
+  synchronized void replaceVideos(UnaryOperator<Video> replacement) {
+    List<Video> replaced = new ArrayList<>(videos.size());
+    for (Video video : videos) {
+      Video next = replacement.apply(video);
+      if (next != null)
+        replaced.add(next);
+    }
     videos.clear();
+    videos.addAll(replaced);
   }
 
 }
@@ -0,0 +1,87 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CatalogLoaderTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testLoaderStripsFieldsAndSplitsTags() throws IOException {
+    var videos = load("  Funny Dogs | funny_dogs_video_id |  #dog , #animal\r\n", 1 << 20);
+
+    assertEquals(1, videos.size());
+    assertEquals("Funny Dogs", videos.get(0).getTitle());
+    assertEquals("funny_dogs_video_id", videos.get(0).getVideoId());
+    assertEquals(List.of("#dog", "#animal"), videos.get(0).getTags());
+  }
+
+  @Test
+  public void testLoaderSkipsBlankLinesAndEmptyTags() throws IOException {
+    var videos = load("\nVideo about nothing | nothing_video_id |\n\nA | a_id | #x,,#y", 1 << 20);
+
+    assertEquals(2, videos.size());
+    assertTrue(videos.get(0).getTags().isEmpty());
+    assertEquals(List.of("#x", "#y"), videos.get(1).getTags());
+  }
+
+  @Test
+  public void testLoaderReadsAcrossMappingWindows() throws IOException {
+    var catalog = new StringBuilder();
+    for (int i = 0; i < 100; i++)
+      catalog.append("Title ").append(i).append(" | id_").append(i).append(" | #tag\n");
+
+    var videos = load(catalog.toString(), 64);
+
+    assertEquals(100, videos.size());
+    assertEquals("id_0", videos.get(0).getVideoId());
+    assertEquals("Title 99", videos.get(99).getTitle());
+  }
+
+  @Test
+  public void testParallelLoaderMatchesSequentialOrder() throws IOException {
+    var catalog = new StringBuilder();
+    for (int i = 0; i < 1000; i++)
+      catalog.append("Title ").append(i).append(" | id_").append(i).append(" | #a , #b\n");
+    Path file = tempDir.resolve("videos.txt");
+    Files.writeString(file, catalog.toString());
+
+    List<Video> sequential = new ArrayList<>();
+    new CatalogLoader(new TagDictionary()).load(file, 4096, sequential::add);
+    List<Video> parallel = new ArrayList<>();
+    CatalogLoader.loadParallel(file, 4096, pool, new TagDictionary(), parallel::add);
+
+    assertEquals(sequential.size(), parallel.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      assertEquals(sequential.get(i).getVideoId(), parallel.get(i).getVideoId());
+      assertEquals(sequential.get(i).getTags(), parallel.get(i).getTags());
+    }
+  }
+
+  private List<Video> load(String catalog, int window) throws IOException {
+    Path file = tempDir.resolve("videos.txt");
+    Files.writeString(file, catalog);
+    List<Video> videos = new ArrayList<>();
+    new CatalogLoader(new TagDictionary()).load(file, window, videos::add);
+    return videos;
+  }
+}
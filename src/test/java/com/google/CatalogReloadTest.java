@@ -0,0 +1,267 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CatalogReloadTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path catalog;
+  private ByteArrayOutputStream outContent;
+  private VideoPlayer videoPlayer;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    catalog = tempDir.resolve("videos.txt");
+    Files.copy(VideoLibrary.defaultCatalog(), catalog);
+    outContent = new ByteArrayOutputStream();
+    videoPlayer = new VideoPlayer(new VideoLibrary(catalog), new Output(outContent));
+  }
+
+  @Test
+  public void testReloadKeepsFlagsOfRemainingVideos() throws Exception {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    videoPlayer.flagVideo("amazing_cats_video_id", "dont_like_cats");
+    videoPlayer.flagVideo("funny_dogs_video_id", "dont_like_dogs");
+
+    rewrite("Amazing Cats | amazing_cats_video_id | #cat , #animal",
+        "Brand New Video | brand_new_video_id | #new",
+        "Another Cat Video | another_cat_video_id | #cat , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+
+    assertEquals(1, library.getGeneration());
+    assertEquals(3, library.size());
+    assertEquals(1, library.countFlagged());
+    assertEquals("dont_like_cats", library.getFlag(library.getVideo("amazing_cats_video_id")));
+    assertNull(library.getVideo("funny_dogs_video_id"));
+    // flagged videos stay out of random picks
+    for (int i = 0; i < 20; i++)
+      assertFalse(library.getRandomVideo().getVideoId().equals("amazing_cats_video_id"));
+  }
+
+  @Test
+  public void testReloadKeepsPlaylistEntriesOfRemainingVideos() throws Exception {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    videoPlayer.addVideoToPlaylist("my_playlist", "life_at_google_video_id");
+    videoPlayer.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+
+    rewrite("Amazing Cats Remastered | amazing_cats_video_id | #cat",
+        "Funny Dogs | funny_dogs_video_id | #dog , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+    outContent.reset();
+    videoPlayer.showPlaylist("my_playlist");
+
+    assertEquals("Showing playlist: my_playlist\n"
+        + "Funny Dogs (funny_dogs_video_id) [#dog #animal]\n"
+        + "Amazing Cats Remastered (amazing_cats_video_id) [#cat]\n", output());
+  }
+
+  @Test
+  public void testReloadKeepsPlayingVideoIfItRemains() throws Exception {
+    videoPlayer.playVideo("amazing_cats_video_id");
+    videoPlayer.pauseVideo();
+
+    rewrite("Amazing Cats | amazing_cats_video_id | #cat , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+    outContent.reset();
+    videoPlayer.showPlaying();
+
+    assertEquals(
+        "Currently playing: Amazing Cats (amazing_cats_video_id) [#cat #animal] - PAUSED\n",
+        output());
+  }
+
+  @Test
+  public void testReloadStopsPlayingVideoIfItIsGone() throws Exception {
+    videoPlayer.playVideo("amazing_cats_video_id");
+
+    rewrite("Funny Dogs | funny_dogs_video_id | #dog , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+    outContent.reset();
+    videoPlayer.showPlaying();
+    videoPlayer.pauseVideo();
+
+    assertEquals("No video is currently playing\n"
+        + "Cannot pause video: No video is currently playing\n", output());
+  }
+
+  @Test
+  public void testSessionsSeeReloadOnTheirNextCommand() throws Exception {
+    var sessionOut = new ByteArrayOutputStream();
+    VideoPlayer session = videoPlayer.newSession(new Output(sessionOut));
+    session.playVideo("funny_dogs_video_id");
+    session.searchVideos("cat");
+
+    rewrite("Funny Dogs | funny_dogs_video_id | #dog",
+        "Another Cat Video | another_cat_video_id | #cat , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+    sessionOut.reset();
+    session.showPlaying();
+    session.playResult(1);
+    session.playResult(2);
+
+    // result 1 was Amazing Cats, which is gone, so result 2 keeps its number
+    assertEquals("Currently playing: Funny Dogs (funny_dogs_video_id) [#dog]\n"
+        + "Cannot play video: Video does not exist\n"
+        + "Stopping video: Funny Dogs\n"
+        + "Playing video: Another Cat Video\n", sessionOut.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testSearchesUseReloadedCatalog() throws Exception {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    rewrite("Cat Facts | cat_facts_video_id | #cat , #facts",
+        "Amazing Cats | amazing_cats_video_id | #cat , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+
+    assertEquals(List.of(library.getVideo("amazing_cats_video_id"),
+        library.getVideo("cat_facts_video_id")), library.searchTitles("cat"));
+    assertEquals(List.of(library.getVideo("cat_facts_video_id")), library.searchTag("#facts"));
+    assertEquals(List.of(), library.searchTag("#dog"));
+  }
+
+  @Test
+  public void testReloadKeepsCatalogRepresentation() throws Exception {
+    var library = new VideoLibrary(catalog, null, new OffHeapCatalog.Builder());
+    var player = new VideoPlayer(library, new Output(outContent));
+
+    rewrite("Funny Dogs | funny_dogs_video_id | #dog , #animal");
+    player.reloadCatalog(catalog, null).get();
+
+    assertEquals(1, library.getGeneration());
+    assertTrue(library.getSharedCatalog().catalog() instanceof OffHeapCatalog);
+    assertEquals(List.of("#dog", "#animal"), library.getVideo("funny_dogs_video_id").getTags());
+  }
+
+  @Test
+  public void testReloadDropsTagsOfEarlierCatalogs() throws Exception {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    for (int i = 0; i < 3; i++) {
+      rewrite("Video " + i + " | video_id | #tag" + i);
+      videoPlayer.reloadCatalog(catalog, null).get();
+    }
+    TagDictionary dictionary = library.getSharedCatalog().catalog().tagDictionary();
+
+    assertEquals(1, dictionary.size());
+    assertEquals(-1, dictionary.idOf("#cat"));
+    assertEquals(List.of("#tag2"), library.getVideo("video_id").getTags());
+    assertEquals(List.of(), library.searchTag("#tag1"));
+  }
+
+  @Test
+  public void testChangesAfterReloadGetTheReloadedVideo() throws Exception {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    Video stale = library.getVideo("amazing_cats_video_id");
+    Video gone = library.getVideo("funny_dogs_video_id");
+
+    rewrite("Amazing Cats Remastered | amazing_cats_video_id | #cat");
+    videoPlayer.reloadCatalog(catalog, null).get();
+    List<Video> changed = new ArrayList<>();
+
+    assertTrue(library.ifUnflagged(stale, changed::add));
+    assertFalse(library.ifUnflagged(gone, changed::add));
+    assertEquals(1, changed.size());
+    assertSame(library.getVideo("amazing_cats_video_id"), changed.get(0));
+    assertEquals("Amazing Cats Remastered", changed.get(0).getTitle());
+  }
+
+  @Test
+  public void testFailedReloadChangesNothing() {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    SharedCatalog before = library.getSharedCatalog();
+
+    var failure = assertThrows(ExecutionException.class,
+        () -> videoPlayer.reloadCatalog(tempDir.resolve("missing.txt"), null).get());
+
+    assertTrue(failure.getCause() instanceof UncheckedIOException, failure.toString());
+    assertSame(before, library.getSharedCatalog());
+    assertEquals(0, library.getGeneration());
+  }
+
+  @Test
+  public void testViewIsNotChangedByReload() throws Exception {
+    VideoLibrary library = videoPlayer.getVideoLibrary();
+    videoPlayer.flagVideo("amazing_cats_video_id", "dont_like_cats");
+    VideoLibrary view = library.view();
+
+    rewrite("Funny Dogs | funny_dogs_video_id | #dog , #animal");
+    videoPlayer.reloadCatalog(catalog, null).get();
+
+    assertEquals(5, view.size());
+    assertEquals(1, view.countFlagged());
+    assertEquals(1, library.size());
+    assertEquals(0, library.countFlagged());
+  }
+
+  @Test
+  public void testSearchesDuringReloadSeeOneWholeCatalog() throws Exception {
+    SharedCatalog small = generated("small", 100);
+    SharedCatalog large = generated("large", 300);
+    var library = new VideoLibrary(small);
+    var stop = new AtomicBoolean();
+    var failure = new AtomicReference<String>();
+
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      var reader = new Thread(() -> {
+        while (!stop.get()) {
+          List<Video> found = library.searchTagPrefix("#cat");
+          String prefix = found.size() == 100 ? "small" : "large";
+          for (Video video : found)
+            if (!video.getTitle().startsWith(prefix) || found.size() % 100 != 0)
+              failure.set("Search mixed catalogs: " + found.size() + " videos, " + video);
+        }
+      });
+      reader.start();
+      readers.add(reader);
+    }
+    for (int i = 0; i < 200; i++)
+      library.reload(i % 2 == 0 ? large : small);
+    stop.set(true);
+    for (Thread reader : readers)
+      reader.join();
+
+    assertNull(failure.get());
+    assertEquals(200, library.getGeneration());
+  }
+
+  // helper methods
+  private void rewrite(String... lines) throws IOException {
+    Files.write(catalog, List.of(lines), StandardCharsets.UTF_8);
+  }
+
+  private SharedCatalog generated(String name, int size) throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+      lines.add(name + " video " + i + " | " + name + "_" + i + "_id | #cat");
+    Path file = tempDir.resolve(name + ".txt");
+    Files.write(file, lines, StandardCharsets.UTF_8);
+    return SharedCatalog.read(file, null, new HeapCatalog.Builder()).withIndexes();
+  }
+
+  private String output() {
+    return outContent.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+  }
+}
@@ -0,0 +1,54 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CommandBatchTest extends TestBase {
+
+  private CommandBatch batch;
+
+  @BeforeEach
+  public void setUpBatch() {
+    batch = new CommandBatch(new CommandParser(videoPlayer));
+  }
+
+  @Test
+  public void testExecutesCommandsInOrderAcrossBatches() throws IOException {
+    int count = CommandBatch.BATCH_SIZE * 2 + 3;
+    var commands = new StringBuilder();
+    for (int i = 0; i < count; i++)
+      commands.append(i % 2 == 0 ? "PLAY amazing_cats_video_id" : "STOP").append('\n');
+
+    assertEquals(count, batch.run(input(commands.toString())));
+
+    String[] lines = getOutputLines();
+    assertEquals(count, lines.length);
+    for (int i = 0; i < count; i++)
+      assertEquals(i % 2 == 0 ? "Playing video: Amazing Cats" : "Stopping video: Amazing Cats",
+          lines[i]);
+  }
+
+  @Test
+  public void testStopsAtExit() throws IOException {
+    assertEquals(1, batch.run(input("NUMBER_OF_VIDEOS\r\nexit\r\nNUMBER_OF_VIDEOS\r\n")));
+
+    String[] lines = getOutputLines();
+    assertEquals(1, lines.length);
+    assertEquals("5 videos in the library", lines[0]);
+  }
+
+  @Test
+  public void testEmptyInputExecutesNothing() throws IOException {
+    assertEquals(0, batch.run(input("")));
+    assertEquals(0, outputStream.size());
+  }
+
+  private static ByteArrayInputStream input(String commands) {
+    return new ByteArrayInputStream(commands.getBytes(Charset.defaultCharset()));
+  }
+}
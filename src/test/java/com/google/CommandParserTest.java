@@ -0,0 +1,82 @@
+package com.google;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CommandParserTest extends TestBase {
+
+  private static final String INVALID =
+      "Please enter a valid command, type HELP for a list of available commands.";
+
+  private CommandParser parser;
+
+  @BeforeEach
+  public void setUpParser() {
+    parser = new CommandParser(videoPlayer);
+  }
+
+  @Test
+  public void testVerbsAreCaseInsensitive() {
+    parser.executeCommand("play amazing_cats_video_id");
+    parser.executeCommand("Show_Playing");
+
+    String[] lines = getOutputLines();
+    assertEquals("Playing video: Amazing Cats", lines[0]);
+    assertThat(lines[1], containsString("Currently playing: Amazing Cats"));
+  }
+
+  @Test
+  public void testUnknownEmptyAndIndentedLinesAreInvalid() {
+    parser.executeCommand("");
+    parser.executeCommand("   ");
+    parser.executeCommand(" PLAY amazing_cats_video_id");
+    parser.executeCommand("PLAYY");
+
+    String[] lines = getOutputLines();
+    assertEquals(4, lines.length);
+    for (String line : lines)
+      assertEquals(INVALID, line);
+  }
+
+  @Test
+  public void testMissingArgumentsPrintUsage() {
+    parser.executeCommand("PLAY");
+    parser.executeCommand("ADD_TO_PLAYLIST my_playlist");
+    parser.executeCommand("SHOW_ALL_VIDEOS 1");
+    parser.executeCommand("SHOW_ALL_VIDEOS 1 x");
+    parser.executeCommand("SHOW_PLAYLIST");
+    parser.executeCommand("SHOW_PLAYLIST my_playlist 1");
+    parser.executeCommand("FLAG_VIDEO");
+    parser.executeCommand("QUERY_TAGS");
+
+    String[] lines = getOutputLines();
+    assertEquals(8, lines.length);
+    assertEquals("Please enter PLAY command followed by video_id.", lines[0]);
+    assertEquals("Please enter ADD_TO_PLAYLIST command followed by a playlist name and "
+        + "video_id to add.", lines[1]);
+    assertEquals("Please enter SHOW_ALL_VIDEOS command optionally followed by a page number "
+        + "and page size.", lines[2]);
+    assertEquals(lines[2], lines[3]);
+    assertEquals("Please enter SHOW_PLAYLIST command followed by a playlist name and "
+        + "optionally a page number and page size.", lines[4]);
+    assertEquals(lines[4], lines[5]);
+    assertEquals("Please enter FLAG_VIDEO command followed by avideo_id and an optional flag "
+        + "reason.", lines[6]);
+    assertEquals("Please enter QUERY_TAGS command followed by a tag query.", lines[7]);
+  }
+
+  @Test
+  public void testOptionalArguments() {
+    parser.executeCommand("FLAG_VIDEO amazing_cats_video_id");
+    parser.executeCommand("FLAG_VIDEO another_cat_video_id dont_like_cats");
+
+    String[] lines = getOutputLines();
+    assertEquals("Successfully flagged video: Amazing Cats (reason: Not supplied)", lines[0]);
+    assertEquals("Successfully flagged video: Another Cat Video (reason: dont_like_cats)",
+        lines[1]);
+  }
+}
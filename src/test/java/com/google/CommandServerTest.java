@@ -0,0 +1,150 @@
+package com.google;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CommandServerTest {
+
+  private CommandServer server;
+  private final List<Client> clients = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    var shared = new VideoPlayer(new VideoLibrary(), new Output(OutputStream.nullOutputStream()));
+    server = CommandServer.start(shared,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    for (Client client : clients)
+      client.socket.close();
+    server.close();
+  }
+
+  @Test
+  public void testGreetsWithPrompt() throws IOException {
+    String greeting = connect().greeting;
+    assertThat(greeting, containsString("Hello and welcome to YouTube"));
+    assertThat(greeting, endsWith(CommandServer.PROMPT));
+  }
+
+  @Test
+  public void testSessionsHaveOwnPlaybackButShareFlags() throws IOException {
+    Client first = connect();
+    Client second = connect();
+
+    assertThat(first.send("PLAY amazing_cats_video_id"),
+        containsString("Playing video: Amazing Cats"));
+    assertThat(second.send("SHOW_PLAYING"), containsString("No video is currently playing"));
+    first.send("FLAG_VIDEO funny_dogs_video_id dont_like_dogs");
+    assertThat(second.send("PLAY funny_dogs_video_id"),
+        containsString("Video is currently flagged (reason: dont_like_dogs)"));
+  }
+
+  @Test
+  public void testUsageMessagesAndSearchResultsStayOnConnection() throws IOException {
+    Client client = connect();
+
+    assertEquals("Please enter PLAY command followed by video_id.\n" + CommandServer.PROMPT,
+        client.send("PLAY"));
+    assertThat(client.send("SEARCH_VIDEOS cat"), containsString("2) Another Cat Video"));
+    assertThat(client.send("PLAY_RESULT 2"), containsString("Playing video: Another Cat Video"));
+  }
+
+  @Test
+  public void testPipelinedCommandsRunInOrder() throws IOException {
+    Client client = connect();
+    var commands = new StringBuilder();
+    for (int i = 0; i < 100; i++)
+      commands.append(i % 2 == 0 ? "PLAY amazing_cats_video_id" : "STOP").append("\r\n");
+    client.out.write(commands.toString().getBytes(StandardCharsets.UTF_8));
+
+    for (int i = 0; i < 100; i++)
+      assertThat(client.readReply(), containsString(
+          i % 2 == 0 ? "Playing video: Amazing Cats" : "Stopping video: Amazing Cats"));
+    assertTrue(server.getLatency().count() >= 100);
+  }
+
+  @Test
+  public void testExitClosesConnection() throws IOException {
+    Client client = connect();
+
+    assertThat(client.send("EXIT"), containsString("Thank you and goodbye!"));
+    assertEquals(-1, client.in.read());
+  }
+
+  @Test
+  public void testServesWhileManyConnectionsAreIdle() throws IOException, InterruptedException {
+    for (int i = 0; i < 500; i++)
+      connect();
+    Client active = connect();
+
+    assertThat(active.send("NUMBER_OF_VIDEOS"), containsString("5 videos in the library"));
+    assertEquals(501, server.getConnections());
+    for (int i = 0; i < 500; i++)
+      clients.get(i).socket.close();
+    for (int i = 0; i < 100 && server.getConnections() > 1; i++)
+      Thread.sleep(10);
+    assertEquals(1, server.getConnections());
+  }
+
+  private Client connect() throws IOException {
+    var client = new Client(new Socket(InetAddress.getLoopbackAddress(), server.getPort()));
+    clients.add(client);
+    return client;
+  }
+
+  private static final class Client {
+    final Socket socket;
+    final InputStream in;
+    final OutputStream out;
+    final String greeting;
+
+    Client(Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = socket.getInputStream();
+      this.out = socket.getOutputStream();
+      this.greeting = readReply();
+    }
+
+    String send(String command) throws IOException {
+      out.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+      return readReply();
+    }
+
+    /**
+     * Reads up to the next prompt, or to the end of the stream.
+     */
+    String readReply() throws IOException {
+      var reply = new ByteArrayOutputStream();
+      byte[] prompt = CommandServer.PROMPT.getBytes(StandardCharsets.UTF_8);
+      int matched = 0;
+      while (matched < prompt.length) {
+        int b = in.read();
+        if (b < 0)
+          break;
+        reply.write(b);
+        matched = b == prompt[matched] ? matched + 1 : (b == prompt[0] ? 1 : 0);
+      }
+      return reply.toString(StandardCharsets.UTF_8);
+    }
+  }
+}
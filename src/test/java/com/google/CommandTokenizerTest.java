@@ -0,0 +1,73 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CommandTokenizerTest {
+
+  private final CommandTokenizer tokenizer = new CommandTokenizer();
+
+  @Test
+  public void testTokensMatchRegexSplit() {
+    String[] lines = {
+        "", " ", "   \t ", "PLAY", "PLAY amazing_cats_video_id", "  PLAY x", "PLAY x  ",
+        "a\tb\r\nc", "a\u000Bb\fc", "a\u00A0b", "one two three four five six seven eight nine ten",
+        "x \r\n"
+    };
+    for (String line : lines)
+      assertEquals(Arrays.asList(line.split("\\s+")), tokens(line), line);
+  }
+
+  @Test
+  public void testJoinMatchesStringJoin() {
+    for (String line : new String[]{"Q a AND b", "Q a  AND\tb", "Q (a OR b)", "Q a"}) {
+      tokenizer.tokenize(line);
+      assertEquals(String.join(" ", tokens(line).subList(1, tokenizer.size())),
+          tokenizer.join(1), line);
+    }
+  }
+
+  @Test
+  public void testIsIntAgreesWithParseInt() {
+    String[] tokens = {"0", "42", "-7", "+3", "-", "+", "1x", "2147483647", "2147483648",
+        "-2147483648", "-2147483649", "\u0663", "007"};
+    for (String token : tokens) {
+      tokenizer.tokenize("SHOW " + token);
+      boolean parses;
+      try {
+        Integer.parseInt(token);
+        parses = true;
+      } catch (NumberFormatException e) {
+        parses = false;
+      }
+      assertEquals(parses, tokenizer.isInt(1), token);
+      if (parses)
+        assertEquals(Integer.parseInt(token), tokenizer.getInt(1), token);
+    }
+  }
+
+  @Test
+  public void testUpperCaseComparisonAndHash() {
+    tokenizer.tokenize("show_Playing now");
+
+    assertTrue(tokenizer.equalsUpperCase(0, "SHOW_PLAYING"));
+    assertFalse(tokenizer.equalsUpperCase(0, "SHOW_PLAYLIST"));
+    assertFalse(tokenizer.equalsUpperCase(1, "NO"));
+    assertEquals("SHOW_PLAYING".hashCode(), tokenizer.hashUpperCase(0));
+    assertEquals("SHOW_PLAYING".hashCode(), CommandTokenizer.hashUpperCase("show_playing"));
+  }
+
+  private List<String> tokens(String line) {
+    tokenizer.tokenize(line);
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; i < tokenizer.size(); i++)
+      tokens.add(tokenizer.get(i));
+    return tokens;
+  }
+}
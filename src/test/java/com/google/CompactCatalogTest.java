@@ -0,0 +1,69 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CompactCatalogTest {
+
+  @Test
+  public void testCompactCatalogMatchesHeapCatalog() {
+    var heap = new HeapCatalog.Builder();
+    var compact = new CompactCatalog.Builder();
+    for (int i = 0; i < 1000; i++) {
+      List<String> tags = i % 3 == 0 ? List.of() : List.of("#tag" + i % 7, "#caf\u00e9");
+      heap.add(new Video("Title \u2615 " + i, "id_" + i, tags, heap.tagDictionary()));
+      compact.add(new Video("Title \u2615 " + i, "id_" + i, tags, compact.tagDictionary()));
+    }
+    VideoCatalog expected = heap.build();
+    VideoCatalog actual = compact.build();
+
+    assertEquals(expected.size(), actual.size());
+    for (int ordinal = 0; ordinal < expected.size(); ordinal++) {
+      Video video = actual.get(ordinal);
+      assertEquals(expected.get(ordinal).getTitle(), video.getTitle());
+      assertEquals(expected.get(ordinal).getVideoId(), video.getVideoId());
+      assertEquals(expected.get(ordinal).getTags(), video.getTags());
+      assertEquals(ordinal, video.getOrdinal());
+      assertEquals(ordinal, actual.ordinalOf(video.getVideoId()));
+    }
+    assertEquals(-1, actual.ordinalOf("missing_id"));
+  }
+
+  @Test
+  public void testDuplicateIdReplacesVideoInPlace() {
+    var builder = new CompactCatalog.Builder();
+    assertTrue(builder.add(new Video("First", "a", List.of("#x"), builder.tagDictionary())));
+    assertTrue(builder.add(new Video("Second", "b", List.of(), builder.tagDictionary())));
+    assertFalse(builder.add(new Video("Replacement", "a", List.of("#y"), builder.tagDictionary())));
+    VideoCatalog catalog = builder.build();
+
+    assertEquals(2, catalog.size());
+    assertEquals("Replacement", catalog.get(0).getTitle());
+    assertEquals(List.of("#y"), catalog.get(0).getTags());
+    assertEquals(0, catalog.ordinalOf("a"));
+  }
+
+  @Test
+  public void testPlayerWorksOverCompactLibrary() {
+    var library = new VideoLibrary(compactDefaultCatalog());
+    var video = library.getVideo("amazing_cats_video_id");
+
+    assertEquals("Amazing Cats", video.getTitle());
+    assertEquals(List.of("#cat", "#animal"), video.getTags());
+    library.flag(video, "dont_like_cats");
+    assertEquals("dont_like_cats", library.getFlag(library.getVideo("amazing_cats_video_id")));
+    assertEquals(List.of(library.getVideo("another_cat_video_id")), library.searchTitles("cat"));
+  }
+
+  private static VideoCatalog compactDefaultCatalog() {
+    var builder = new CompactCatalog.Builder();
+    new VideoLibrary().getVideos().forEach(video ->
+        builder.add(new Video(video.getTitle(), video.getVideoId(), video.getTags(),
+            builder.tagDictionary())));
+    return builder.build();
+  }
+}
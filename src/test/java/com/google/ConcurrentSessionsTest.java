@@ -0,0 +1,306 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ConcurrentSessionsTest {
+
+  private static final int THREADS = 3;
+  private static final int OPS_PER_THREAD = 4;
+  private static final int ROUNDS = 300;
+
+  @TempDir
+  Path tempDir;
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(16);
+
+  @AfterEach
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testPlaylistOperationsAreLinearizable()
+      throws InterruptedException, ExecutionException {
+    var library = new VideoLibrary();
+    Video[] videos = {library.getVideo("funny_dogs_video_id"),
+        library.getVideo("amazing_cats_video_id")};
+    Random random = new Random(42);
+    for (int round = 0; round < ROUNDS; round++) {
+      var playlist = new VideoPlaylist("my_playlist");
+      List<Op> history = run(random, 4, (type, arg) -> {
+        switch (type) {
+          case 0: return playlist.addVideo(videos[arg]);
+          case 1: return playlist.removeVideo(videos[arg]);
+          case 2: return playlist.contains(videos[arg]);
+          default: playlist.clear(); return true;
+        }
+      });
+      assertTrue(linearizable(history, (state, op) -> {
+        int bit = 1 << op.arg;
+        switch (op.type) {
+          case 0: return op.result == ((state & bit) == 0) ? state | bit : -1;
+          case 1: return op.result == ((state & bit) != 0) ? state & ~bit : -1;
+          case 2: return op.result == ((state & bit) != 0) ? state : -1;
+          default: return 0;
+        }
+      }), "Not linearizable: " + history);
+    }
+  }
+
+  @Test
+  public void testPlaylistCreateAndDeleteAreLinearizable()
+      throws InterruptedException, ExecutionException {
+    String[] names = {"my_playlist", "MY_PLAYLIST"};
+    Random random = new Random(7);
+    for (int round = 0; round < ROUNDS; round++) {
+      var registry = new PlaylistRegistry();
+      List<Op> history = run(random, 3, (type, arg) -> {
+        switch (type) {
+          case 0: return registry.create(names[arg]) != null;
+          case 1: return registry.delete(names[arg]);
+          default: return registry.get(names[arg]) != null;
+        }
+      });
+      assertTrue(linearizable(history, (state, op) -> {
+        switch (op.type) {
+          case 0: return op.result == (state == 0) ? 1 : -1;
+          case 1: return op.result == (state == 1) ? 0 : -1;
+          default: return op.result == (state == 1) ? state : -1;
+        }
+      }), "Not linearizable: " + history);
+      assertEquals(registry.size(), registry.sorted().size());
+    }
+  }
+
+  @Test
+  public void testThousandsOfSessionsShareOneLibrary()
+      throws InterruptedException, ExecutionException {
+    var shared = new VideoPlayer(new VideoLibrary(), new Output(new ByteArrayOutputStream()));
+    int sessions = 2000;
+    List<Future<String>> outputs = new ArrayList<>();
+    for (int i = 0; i < sessions; i++) {
+      int id = i;
+      outputs.add(pool.submit(() -> {
+        var bytes = new ByteArrayOutputStream();
+        VideoPlayer session = shared.newSession(new Output(bytes));
+        String videoId = id % 2 == 0 ? "funny_dogs_video_id" : "life_at_google_video_id";
+        session.createPlaylist("playlist_" + id);
+        session.addVideoToPlaylist("playlist_" + id, videoId);
+        session.addVideoToPlaylist("playlist_" + id, "nothing_video_id");
+        session.playVideo(videoId);
+        session.flagVideo("amazing_cats_video_id", "session_" + id);
+        session.showPlaying();
+        return bytes.toString();
+      }));
+    }
+
+    int flaggedBy = 0;
+    for (int i = 0; i < sessions; i++) {
+      String output = outputs.get(i).get();
+      String title = i % 2 == 0 ? "Funny Dogs" : "Life at Google";
+      assertTrue(output.contains("Currently playing: " + title), output);
+      if (output.contains("Successfully flagged video: Amazing Cats"))
+        flaggedBy++;
+    }
+    assertEquals(1, flaggedBy);
+    assertEquals(sessions, shared.getPlaylists().size());
+    for (VideoPlaylist playlist : shared.getPlaylists().sorted())
+      assertEquals(2, playlist.size());
+  }
+
+  @Test
+  public void testSessionsSearchConcurrentlyAndPlayTheirOwnResults()
+      throws InterruptedException, ExecutionException {
+    var shared = new VideoPlayer(new VideoLibrary(), new Output(new ByteArrayOutputStream()));
+    int sessions = 200;
+    var start = new CountDownLatch(1);
+    List<Future<String>> outputs = new ArrayList<>();
+    for (int i = 0; i < sessions; i++) {
+      int id = i;
+      outputs.add(pool.submit(() -> {
+        var bytes = new ByteArrayOutputStream();
+        VideoPlayer session = shared.newSession(new Output(bytes));
+        start.await();
+        if (id % 2 == 0)
+          session.searchVideos("cat");
+        else
+          session.searchVideosWithTag("#dog");
+        session.playResult(1);
+        return bytes.toString();
+      }));
+    }
+    start.countDown();
+
+    for (int i = 0; i < sessions; i++) {
+      String output = outputs.get(i).get();
+      String title = i % 2 == 0 ? "Amazing Cats" : "Funny Dogs";
+      assertTrue(output.contains("Playing video: " + title), output);
+    }
+  }
+
+  @Test
+  public void testLoggedChangesReplayToTheStateSessionsLeft()
+      throws IOException, InterruptedException, ExecutionException {
+    String[] videoIds = {"funny_dogs_video_id", "amazing_cats_video_id", "nothing_video_id"};
+    for (MutationLog.SyncPolicy policy : MutationLog.SyncPolicy.values()) {
+      Path path = tempDir.resolve(policy + ".log");
+      var shared = new VideoPlayer(new VideoLibrary(), new Output(new ByteArrayOutputStream()));
+      try (MutationLog log = MutationLog.open(path, policy, 10)) {
+        shared.setMutationLog(log);
+        shared.createPlaylist("shared");
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+          var random = new Random(i);
+          sessions.add(pool.submit(() -> {
+            VideoPlayer session = shared.newSession(new Output(new ByteArrayOutputStream()));
+            for (int op = 0; op < 200; op++) {
+              String videoId = videoIds[random.nextInt(videoIds.length)];
+              switch (random.nextInt(4)) {
+                case 0:
+                  session.addVideoToPlaylist("shared", videoId);
+                  break;
+                case 1:
+                  session.removeFromPlaylist("shared", videoId);
+                  break;
+                case 2:
+                  session.flagVideo(videoId, "reason");
+                  break;
+                default:
+                  session.allowVideo(videoId);
+              }
+            }
+            return null;
+          }));
+        }
+        for (Future<?> session : sessions)
+          session.get();
+      }
+
+      var library = new VideoLibrary();
+      var playlists = new PlaylistRegistry();
+      try (MutationLog log = MutationLog.open(path, policy, 10)) {
+        log.replay(library, playlists);
+      }
+      assertEquals(ids(shared.getPlaylists().get("shared").getVideos()),
+          ids(playlists.get("shared").getVideos()), policy.toString());
+      assertEquals(ids(shared.getVideoLibrary().getFlaggedVideos()),
+          ids(library.getFlaggedVideos()), policy.toString());
+    }
+  }
+
+  // helper methods
+  private static List<String> ids(Collection<Video> videos) {
+    List<String> ids = new ArrayList<>();
+    for (Video video : videos)
+      ids.add(video.getVideoId());
+    return ids;
+  }
+
+  private interface Operation {
+    boolean perform(int type, int arg);
+  }
+
+  private interface Model {
+    /**
+     * Returns the state after the operation, or -1 if the operation could not have returned its
+     * result from the given state.
+     */
+    int apply(int state, Op op);
+  }
+
+  private static final class Op {
+    final int type;
+    final int arg;
+    boolean result;
+    long invoked;
+    long returned;
+
+    Op(int type, int arg) {
+      this.type = type;
+      this.arg = arg;
+    }
+
+    @Override
+    public String toString() {
+      return type + "(" + arg + ")=" + result + "@[" + invoked + "," + returned + "]";
+    }
+  }
+
+  /**
+   * Runs random operations from several threads released together, recording when each was
+   * invoked and when it returned.
+   */
+  private List<Op> run(Random random, int types, Operation operation)
+      throws InterruptedException, ExecutionException {
+    var start = new CountDownLatch(1);
+    List<Future<List<Op>>> threads = new ArrayList<>();
+    for (int thread = 0; thread < THREADS; thread++) {
+      List<Op> ops = new ArrayList<>();
+      for (int i = 0; i < OPS_PER_THREAD; i++)
+        ops.add(new Op(random.nextInt(types), random.nextInt(2)));
+      threads.add(pool.submit(() -> {
+        start.await();
+        for (Op op : ops) {
+          op.invoked = System.nanoTime();
+          op.result = operation.perform(op.type, op.arg);
+          op.returned = System.nanoTime();
+        }
+        return ops;
+      }));
+    }
+    start.countDown();
+    List<Op> history = new ArrayList<>();
+    for (Future<List<Op>> thread : threads)
+      history.addAll(thread.get());
+    return history;
+  }
+
+  /**
+   * Searches for an order of the operations that respects real time and is legal for the model,
+   * starting from state 0. An operation can go next if no other pending operation returned before
+   * it was invoked.
+   */
+  private static boolean linearizable(List<Op> history, Model model) {
+    return search(history, 0, 0, new HashSet<>(), model);
+  }
+
+  private static boolean search(List<Op> history, int done, int state, Set<Long> failed,
+      Model model) {
+    if (done == (1 << history.size()) - 1)
+      return true;
+    if (!failed.add(((long) done << 32) | state))
+      return false;
+    long firstReturn = Long.MAX_VALUE;
+    for (int i = 0; i < history.size(); i++)
+      if ((done & (1 << i)) == 0)
+        firstReturn = Math.min(firstReturn, history.get(i).returned);
+    for (int i = 0; i < history.size(); i++) {
+      Op op = history.get(i);
+      if ((done & (1 << i)) != 0 || op.invoked > firstReturn)
+        continue;
+      int next = model.apply(state, op);
+      if (next >= 0 && search(history, done | (1 << i), next, failed, model))
+        return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,44 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FlagSetTest {
+
+  @Test
+  public void testEmptySetHasNoFlags() {
+    var flags = new FlagSet(100);
+
+    assertTrue(flags.isEmpty());
+    assertFalse(flags.contains(42));
+    assertNull(flags.reason(42));
+    assertArrayEquals(new int[0], flags.toArray());
+  }
+
+  @Test
+  public void testAddAndRemoveAcrossWords() {
+    var flags = new FlagSet(200);
+
+    assertTrue(flags.add(130, "late"));
+    assertTrue(flags.add(0, "first"));
+    assertTrue(flags.add(63, "edge"));
+    assertTrue(flags.add(64, "next word"));
+    assertFalse(flags.add(63, "again"));
+
+    assertEquals(4, flags.size());
+    assertEquals("edge", flags.reason(63));
+    assertArrayEquals(new int[] {0, 63, 64, 130}, flags.toArray());
+
+    assertTrue(flags.remove(63));
+    assertFalse(flags.remove(63));
+    assertFalse(flags.contains(63));
+    assertNull(flags.reason(63));
+    assertEquals(3, flags.size());
+    assertArrayEquals(new int[] {0, 64, 130}, flags.toArray());
+  }
+}
@@ -0,0 +1,60 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsCoverValuesWithinSixPercent() {
+    for (long value = 0; value < 1 << 20; value += 1 + value / 100) {
+      int index = LatencyHistogram.indexOf(value);
+      long highest = LatencyHistogram.highestIn(index);
+      assertTrue(highest >= value, String.valueOf(value));
+      assertTrue(highest - value <= value / 16, String.valueOf(value));
+      if (index > 0)
+        assertTrue(LatencyHistogram.highestIn(index - 1) < value, String.valueOf(value));
+    }
+    assertEquals(Long.MAX_VALUE,
+        LatencyHistogram.highestIn(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void testPercentiles() {
+    var histogram = new LatencyHistogram();
+    assertEquals(0, histogram.percentile(99));
+    for (int i = 1; i <= 100; i++)
+      histogram.record(i * 1000L);
+
+    assertEquals(100, histogram.count());
+    assertApproximately(50_000, histogram.percentile(50));
+    assertApproximately(99_000, histogram.percentile(99));
+    assertApproximately(100_000, histogram.percentile(100));
+    assertApproximately(1000, histogram.percentile(0));
+  }
+
+  @Test
+  public void testConcurrentRecording() throws InterruptedException {
+    var histogram = new LatencyHistogram();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++)
+      pool.execute(() -> {
+        for (int i = 0; i < 10_000; i++)
+          histogram.record(i);
+      });
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(40_000, histogram.count());
+  }
+
+  private static void assertApproximately(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected + expected / 16,
+        expected + " ~ " + actual);
+  }
+}
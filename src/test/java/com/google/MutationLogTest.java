@@ -0,0 +1,172 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MutationLogTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testReplayRestoresPlayerChanges() throws IOException {
+    for (MutationLog.SyncPolicy policy : MutationLog.SyncPolicy.values()) {
+      Path path = tempDir.resolve(policy + ".log");
+      try (MutationLog log = MutationLog.open(path, policy, 10)) {
+        var player = new VideoPlayer(new VideoLibrary(), new Output(new ByteArrayOutputStream()));
+        player.setMutationLog(log);
+        player.createPlaylist("My_Playlist");
+        player.createPlaylist("Other");
+        player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+        player.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+        player.removeFromPlaylist("my_playlist", "amazing_cats_video_id");
+        player.addVideoToPlaylist("Other", "life_at_google_video_id");
+        player.clearPlaylist("Other");
+        player.deletePlaylist("Other");
+        player.flagVideo("another_cat_video_id", "dont_like_cats");
+        player.flagVideo("nothing_video_id");
+        player.allowVideo("nothing_video_id");
+      }
+
+      var library = new VideoLibrary();
+      var playlists = new PlaylistRegistry();
+      try (MutationLog log = MutationLog.open(path, policy, 10)) {
+        log.replay(library, playlists);
+      }
+      assertEquals(1, playlists.size());
+      assertEquals(List.of(library.getVideo("funny_dogs_video_id")),
+          new ArrayList<>(playlists.get("MY_PLAYLIST").getVideos()));
+      assertNull(playlists.get("Other"));
+      assertEquals("dont_like_cats", library.getFlag(library.getVideo("another_cat_video_id")));
+      assertEquals(1, library.countFlagged());
+    }
+  }
+
+  @Test
+  public void testTornRecordIsCutOff() throws IOException {
+    Path path = tempDir.resolve("videos.log");
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      log.createPlaylist("kept");
+    }
+    long intact = Files.size(path);
+    Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      assertEquals(intact, log.size());
+      log.createPlaylist("appended");
+    }
+    var playlists = new PlaylistRegistry();
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      log.replay(new VideoLibrary(), playlists);
+    }
+    assertEquals(2, playlists.size());
+  }
+
+  @Test
+  public void testConcurrentWritersShareForces()
+      throws IOException, InterruptedException, ExecutionException {
+    Path path = tempDir.resolve("videos.log");
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        int writer = thread;
+        writers.add(pool.submit(() -> {
+          for (int i = 0; i < 100; i++)
+            log.createPlaylist("playlist_" + writer + "_" + i);
+        }));
+      }
+      for (Future<?> writer : writers)
+        writer.get();
+    } finally {
+      pool.shutdown();
+    }
+
+    var playlists = new PlaylistRegistry();
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      log.replay(new VideoLibrary(), playlists);
+    }
+    assertEquals(400, playlists.size());
+  }
+
+  @Test
+  public void testFailedWriteFailsLaterChanges() throws IOException {
+    Path path = tempDir.resolve("videos.log");
+    MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0);
+    log.createPlaylist("kept");
+    log.close();
+
+    var failed = assertThrows(UncheckedIOException.class, () -> log.createPlaylist("lost"));
+    var later = assertThrows(UncheckedIOException.class, () -> log.createPlaylist("later"));
+    assertSame(failed.getCause(), later.getCause().getCause());
+
+    var playlists = new PlaylistRegistry();
+    try (MutationLog reopened = MutationLog.open(path, MutationLog.SyncPolicy.ALWAYS, 0)) {
+      reopened.replay(new VideoLibrary(), playlists);
+    }
+    assertEquals(1, playlists.size());
+  }
+
+  @Test
+  public void testPlayerRepliesWhenLogFails() throws IOException {
+    var out = new ByteArrayOutputStream();
+    var player = new VideoPlayer(new VideoLibrary(), new Output(out));
+    MutationLog log = MutationLog.open(tempDir.resolve("videos.log"),
+        MutationLog.SyncPolicy.ALWAYS, 0);
+    player.setMutationLog(log);
+    player.createPlaylist("my_playlist");
+    log.close();
+
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.flagVideo("funny_dogs_video_id", "dont_like_dogs");
+
+    assertEquals("Successfully created new playlist: my_playlist\n"
+        + "Cannot add video to my_playlist: Change could not be saved\n"
+        + "Cannot flag video: Change could not be saved\n",
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCompactionMovesChangesIntoSnapshot() throws IOException {
+    Path catalog = tempDir.resolve("videos.txt");
+    Files.copy(VideoLibrary.defaultCatalog(), catalog);
+    Path snapshot = tempDir.resolve("videos.snapshot");
+    Path path = tempDir.resolve("videos.snapshot.log");
+    var library = new VideoLibrary(catalog);
+    var playlists = new PlaylistRegistry();
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.OS, 0)) {
+      var player = new VideoPlayer(library, playlists, new Output(new ByteArrayOutputStream()));
+      player.setMutationLog(log);
+      player.createPlaylist("before");
+      long grown = log.size();
+      log.compact(snapshot, catalog, library, playlists);
+      assertTrue(log.size() < grown);
+      player.createPlaylist("after");
+    }
+
+    Snapshot restored = Snapshot.open(snapshot, catalog);
+    try (MutationLog log = MutationLog.open(path, MutationLog.SyncPolicy.OS, 0)) {
+      log.replay(restored.getLibrary(), restored.getPlaylists());
+    }
+    assertEquals(2, restored.getPlaylists().size());
+  }
+}
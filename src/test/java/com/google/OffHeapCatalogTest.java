@@ -0,0 +1,62 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapCatalogTest {
+
+  @Test
+  public void testOffHeapCatalogMatchesHeapCatalog() {
+    var heap = new HeapCatalog.Builder();
+    var offHeap = new OffHeapCatalog.Builder();
+    // enough videos to grow past the first segment size
+    for (int i = 0; i < 20000; i++) {
+      List<String> tags = i % 3 == 0 ? List.of() : List.of("#tag" + i % 7, "#caf\u00e9");
+      heap.add(new Video("Title \u2615 " + i, "id_" + i, tags, heap.tagDictionary()));
+      offHeap.add(new Video("Title \u2615 " + i, "id_" + i, tags, offHeap.tagDictionary()));
+    }
+    VideoCatalog expected = heap.build();
+    VideoCatalog actual = offHeap.build();
+
+    assertEquals(expected.size(), actual.size());
+    for (int ordinal = 0; ordinal < expected.size(); ordinal++) {
+      Video video = actual.get(ordinal);
+      assertEquals(expected.get(ordinal).getTitle(), video.getTitle());
+      assertEquals(expected.get(ordinal).getVideoId(), video.getVideoId());
+      assertEquals(expected.get(ordinal).getTags(), video.getTags());
+      assertEquals(ordinal, actual.ordinalOf(video.getVideoId()));
+    }
+    assertEquals(-1, actual.ordinalOf("missing_id"));
+  }
+
+  @Test
+  public void testDuplicateIdReplacesVideoInPlace() {
+    var builder = new OffHeapCatalog.Builder();
+    builder.add(new Video("First", "a", List.of("#x"), builder.tagDictionary()));
+    builder.add(new Video("Second", "b", List.of(), builder.tagDictionary()));
+    assertFalse(builder.add(new Video("Replacement", "a", List.of("#y"), builder.tagDictionary())));
+    VideoCatalog catalog = builder.build();
+
+    assertEquals(2, catalog.size());
+    assertEquals("Replacement", catalog.get(0).getTitle());
+    assertEquals(List.of("#y"), catalog.get(0).getTags());
+    assertEquals(1, catalog.ordinalOf("b"));
+  }
+
+  @Test
+  public void testLibraryWorksOverOffHeapCatalog() {
+    var builder = new OffHeapCatalog.Builder();
+    new VideoLibrary().getVideos().forEach(video ->
+        builder.add(new Video(video.getTitle(), video.getVideoId(), video.getTagIds(),
+            video.getTagDictionary())));
+    var library = new VideoLibrary(builder.build());
+
+    assertEquals(5, library.size());
+    assertEquals("Amazing Cats", library.getVideo("amazing_cats_video_id").getTitle());
+    assertEquals(List.of(library.getVideo("amazing_cats_video_id"),
+        library.getVideo("another_cat_video_id")), library.searchTag("#CAT"));
+  }
+}
@@ -0,0 +1,39 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class OutputTest {
+
+  @Test
+  public void testOutputIsWrittenOnlyOnFlush() {
+    var bytes = new ByteArrayOutputStream();
+    var out = new Output(bytes);
+
+    out.print("Playing video: ").println("Amazing Cats");
+    assertEquals(0, bytes.size());
+
+    out.flush();
+    assertEquals(String.format("Playing video: Amazing Cats%n"), bytes.toString());
+  }
+
+  @Test
+  public void testOutputMatchesPrintf() {
+    var expected = new ByteArrayOutputStream();
+    var printStream = new PrintStream(expected, true, StandardCharsets.UTF_8);
+    var actual = new ByteArrayOutputStream();
+    var out = new Output(actual, StandardCharsets.UTF_8);
+
+    var title = "Caf\u00e9 \u2615 \ud83d\udc31".repeat(5000);
+    printStream.printf("%d) %s (%s)%n", 12, title, null);
+    out.print(12).print(") ").print(title).print(" (").print((String) null).println(")");
+    out.flush();
+
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+}
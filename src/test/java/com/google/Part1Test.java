@@ -41,6 +41,25 @@ public class Part1Test extends TestBase {
         containsString("Video about nothing (nothing_video_id) []"));
   }
 
+  @Test
+  public void testShowAllVideosPage() {
+    videoPlayer.showAllVideos(2, 2);
+    videoPlayer.showAllVideos(3, 2);
+    videoPlayer.showAllVideos(4, 2);
+
+    String[] lines = getOutputLines();
+    assertEquals(6, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("Here's page 2 of 3 of all available videos:"));
+    assertThat(lines[1],
+        containsString("Funny Dogs (funny_dogs_video_id) [#dog #animal]"));
+    assertThat(lines[2],
+        containsString("Life at Google (life_at_google_video_id) [#google #career]"));
+    assertThat(lines[3], containsString("Here's page 3 of 3 of all available videos:"));
+    assertThat(lines[4],
+        containsString("Video about nothing (nothing_video_id) []"));
+    assertThat(lines[5], containsString("Cannot show page 4: There are only 3 pages"));
+  }
+
   @Test
   public void testPlayVideo() {
     videoPlayer.playVideo("amazing_cats_video_id");
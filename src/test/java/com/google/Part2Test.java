@@ -245,4 +245,45 @@ public class Part2Test extends TestBase {
     assertThat(outputStream.toString(),
         containsString("Cannot delete playlist my_playlist: Playlist does not exist"));
   }
+
+  @Test
+  public void testDeletePlaylistThenCreateAgain() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.deletePlaylist("my_PLAYlist");
+    videoPlayer.showAllPlaylists();
+    videoPlayer.createPlaylist("MY_playlist");
+
+    var lines = getOutputLines();
+    assertEquals(4, lines.length, outputStream.toString());
+    assertThat(lines[2], containsString("No playlists exist yet"));
+    assertThat(lines[3], containsString("Successfully created new playlist: MY_playlist"));
+  }
+
+  @Test
+  public void testAddVideoToPlaylistNonExistentWhileOthersExist() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.addVideoToPlaylist("another_playlist", "amazing_cats_video_id");
+
+    var lines = getOutputLines();
+    assertEquals(2, lines.length, outputStream.toString());
+    assertThat(lines[1],
+        containsString("Cannot add video to another_playlist: Playlist does not exist"));
+  }
+
+  @Test
+  public void testShowPlaylistPage() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("my_playlist", "life_at_google_video_id");
+    videoPlayer.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    videoPlayer.showPlaylist("my_PLAYlist", 2, 2);
+    videoPlayer.showPlaylist("my_playlist", 0, 2);
+
+    var lines = getOutputLines();
+    assertEquals(7, lines.length, outputStream.toString());
+    assertThat(lines[4], containsString("Showing playlist: my_PLAYlist (page 2 of 2)"));
+    assertThat(lines[5], containsString("Funny Dogs (funny_dogs_video_id) [#dog #animal]"));
+    assertThat(lines[6],
+        containsString("Cannot show page 0: Page number and page size must be positive"));
+  }
 }
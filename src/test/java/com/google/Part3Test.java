@@ -10,48 +10,40 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 public class Part3Test extends TestBase {
 
   @Test
-  public void testSearchVideosWithNoAnswer() {
-    setInput("No");
-
+  public void testSearchVideosOffersResults() {
     videoPlayer.searchVideos("cat");
 
     var lines = getOutputLines();
-    assertEquals(5, lines.length, outputStream.toString());
+    assertEquals(4, lines.length, outputStream.toString());
     assertThat(lines[0], containsString("Here are the results for cat:"));
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
     assertThat(outputStream.toString(), not(containsString("Playing video")));
   }
 
   @Test
-  public void testSearchVideosAndPlayAnswer() {
-    setInput("2");
-
+  public void testSearchVideosAndPlayResult() {
     videoPlayer.searchVideos("cat");
+    videoPlayer.playResult(2);
 
     var lines = getOutputLines();
-    assertEquals(6, lines.length, outputStream.toString());
+    assertEquals(5, lines.length, outputStream.toString());
     assertThat(lines[0], containsString("Here are the results for cat:"));
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
-    assertThat(lines[5], containsString("Playing video: Another Cat Video"));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
+    assertThat(lines[4], containsString("Playing video: Another Cat Video"));
   }
 
   @Test
-  public void testSearchVideosAnswerOutOfBounds() {
-    setInput("5");
-
+  public void testSearchVideosPlayResultOutOfBounds() {
     videoPlayer.searchVideos("cat");
+    videoPlayer.playResult(5);
 
     var lines = getOutputLines();
     assertEquals(5, lines.length, outputStream.toString());
@@ -59,18 +51,16 @@ public class Part3Test extends TestBase {
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
+    assertThat(lines[4], containsString("Cannot play result: Result 5 does not exist"));
     assertThat(outputStream.toString(), not(containsString("Playing video")));
   }
 
   @Test
-  public void testSearchVideosInvalidNumber() {
-    setInput("ab3g");
-
+  public void testSearchVideosPlayResultInvalidNumber() {
     videoPlayer.searchVideos("cat");
+    new CommandParser(videoPlayer).executeCommand("PLAY_RESULT ab3g");
 
     var lines = getOutputLines();
     assertEquals(5, lines.length, outputStream.toString());
@@ -78,13 +68,38 @@ public class Part3Test extends TestBase {
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
+    assertThat(lines[4], containsString(
+        "Please enter PLAY_RESULT command followed by the number of a search result."));
     assertThat(outputStream.toString(), not(containsString("Playing video")));
   }
 
+  @Test
+  public void testPlayResultWithoutSearch() {
+    videoPlayer.playResult(1);
+    assertThat(outputStream.toString(),
+        containsString("Cannot play result: No search results to choose from"));
+  }
+
+  @Test
+  public void testSearchVideosNoResultsClearsResults() {
+    videoPlayer.searchVideos("cat");
+    videoPlayer.searchVideos("blah");
+    videoPlayer.playResult(1);
+
+    var lines = getOutputLines();
+    assertThat(lines[5], containsString("Cannot play result: No search results to choose from"));
+  }
+
+  @Test
+  public void testSearchVideosReturnsResults() {
+    var results = videoPlayer.searchVideos("cat");
+
+    assertEquals(2, results.size());
+    assertEquals("another_cat_video_id", results.get(1).getVideoId());
+  }
+
   @Test
   public void testSearchVideosNoResults() {
     videoPlayer.searchVideos("blah");
@@ -93,48 +108,40 @@ public class Part3Test extends TestBase {
   }
 
   @Test
-  public void testSearchVideosWithTagNoAnswer() {
-    setInput("no");
-
+  public void testSearchVideosWithTagOffersResults() {
     videoPlayer.searchVideosWithTag("#cat");
 
     var lines = getOutputLines();
-    assertEquals(5, lines.length, outputStream.toString());
+    assertEquals(4, lines.length, outputStream.toString());
     assertThat(lines[0], containsString("Here are the results for #cat:"));
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
     assertThat(outputStream.toString(), not(containsString("Playing video")));
   }
 
   @Test
-  public void testSearchVideosWithTagPlayAnswer() {
-    setInput("1");
-
+  public void testSearchVideosWithTagPlayResult() {
     videoPlayer.searchVideosWithTag("#cat");
+    videoPlayer.playResult(1);
 
     var lines = getOutputLines();
-    assertEquals(6, lines.length, outputStream.toString());
+    assertEquals(5, lines.length, outputStream.toString());
     assertThat(lines[0], containsString("Here are the results for #cat:"));
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
-    assertThat(lines[5], containsString("Playing video: Amazing Cats"));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
+    assertThat(lines[4], containsString("Playing video: Amazing Cats"));
   }
 
   @Test
-  public void testSearchVideosWithTagAnswerOutOfBounds() {
-    setInput("5");
-
+  public void testSearchVideosWithTagPlayResultOutOfBounds() {
     videoPlayer.searchVideosWithTag("#cat");
+    videoPlayer.playResult(5);
 
     var lines = getOutputLines();
     assertEquals(5, lines.length, outputStream.toString());
@@ -142,10 +149,9 @@ public class Part3Test extends TestBase {
     assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
     assertThat(lines[2],
         containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
+    assertThat(lines[4], containsString("Cannot play result: Result 5 does not exist"));
     assertThat(outputStream.toString(), not(containsString("Playing video")));
   }
 
@@ -139,42 +139,34 @@ public class Part4Test extends TestBase {
 
   @Test
   public void testFlagVideoSearchVideos() {
-    setInput("No");
-
     videoPlayer.flagVideo("amazing_cats_video_id", "dont_like_cats");
     videoPlayer.searchVideos("cat");
 
     var lines = getOutputLines();
-    assertEquals(5, lines.length, outputStream.toString());
+    assertEquals(4, lines.length, outputStream.toString());
     assertThat(lines[0],
         containsString("Successfully flagged video: Amazing Cats (reason: dont_like_cats)"));
     assertThat(lines[1], containsString("Here are the results for cat:"));
     assertThat(lines[2],
         containsString("1) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
   }
 
   @Test
   public void testFlagVideoSearchVideosWithTag() {
-    setInput("No");
-
     videoPlayer.flagVideo("amazing_cats_video_id", "dont_like_cats");
     videoPlayer.searchVideosWithTag("#cat");
 
     var lines = getOutputLines();
-    assertEquals(5, lines.length, outputStream.toString());
+    assertEquals(4, lines.length, outputStream.toString());
     assertThat(lines[0],
         containsString("Successfully flagged video: Amazing Cats (reason: dont_like_cats)"));
     assertThat(lines[1], containsString("Here are the results for #cat:"));
     assertThat(lines[2],
         containsString("1) Another Cat Video (another_cat_video_id) [#cat #animal]"));
-    assertThat(lines[3], containsString(
-        "Would you like to play any of the above? If yes, specify the number of the video."));
-    assertThat(lines[4],
-        containsString("If your answer is not a valid number, we will assume it's a no."));
+    assertThat(lines[3], containsString("Would you like to play any of the above? If yes, "
+        + "enter PLAY_RESULT followed by the number of the video."));
   }
 
   @Test
@@ -278,4 +270,25 @@ public class Part4Test extends TestBase {
     assertThat(lines[7],
         containsString("Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
   }
+
+  @Test
+  public void testShowFlaggedVideos() {
+    videoPlayer.flagVideo("funny_dogs_video_id", "dont_like_dogs");
+    videoPlayer.flagVideo("amazing_cats_video_id");
+    videoPlayer.allowVideo("funny_dogs_video_id");
+    videoPlayer.showFlaggedVideos();
+
+    var lines = getOutputLines();
+    assertEquals(5, lines.length, outputStream.toString());
+    assertThat(lines[3], containsString("Here's a list of all flagged videos:"));
+    assertThat(lines[4], containsString(
+        "Amazing Cats (amazing_cats_video_id) [#cat #animal] - FLAGGED (reason: Not supplied)"));
+  }
+
+  @Test
+  public void testShowFlaggedVideosNoneFlagged() {
+    videoPlayer.showFlaggedVideos();
+    assertEquals(1, getOutputLines().length);
+    assertThat(outputStream.toString(), containsString("No videos are currently flagged"));
+  }
 }
@@ -0,0 +1,35 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class PostingListsTest {
+
+  @Test
+  public void testSetOperationsMatchNaiveResults() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      int[] a = randomList(random, random.nextInt(50), 1000);
+      int[] b = randomList(random, random.nextInt(500), 1000);
+
+      assertArrayEquals(
+          IntStream.of(a).filter(x -> contains(b, x)).toArray(), PostingLists.intersect(a, b));
+      assertArrayEquals(
+          IntStream.of(a).filter(x -> !contains(b, x)).toArray(), PostingLists.difference(a, b));
+      assertArrayEquals(
+          IntStream.concat(IntStream.of(a), IntStream.of(b)).distinct().sorted().toArray(),
+          PostingLists.union(a, b));
+    }
+  }
+
+  private static int[] randomList(Random random, int size, int bound) {
+    return random.ints(size, 0, bound).distinct().sorted().toArray();
+  }
+
+  private static boolean contains(int[] list, int value) {
+    return IntStream.of(list).anyMatch(x -> x == value);
+  }
+}
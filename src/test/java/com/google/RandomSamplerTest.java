@@ -0,0 +1,64 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RandomSamplerTest {
+
+  @Test
+  public void testSampleCoversAllOrdinalsBeforeAnyRemoval() {
+    var sampler = new RandomSampler(3);
+    boolean[] seen = new boolean[3];
+    for (int i = 0; i < 1000; i++)
+      seen[sampler.sample()] = true;
+
+    assertEquals(3, sampler.size());
+    assertTrue(sampler.isPlayable(2));
+    assertTrue(seen[0] && seen[1] && seen[2]);
+  }
+
+  @Test
+  public void testSampleSkipsRemovedOrdinals() {
+    var sampler = new RandomSampler(4);
+    sampler.remove(0);
+    sampler.remove(2);
+    sampler.remove(2);
+
+    assertEquals(2, sampler.size());
+    for (int i = 0; i < 100; i++) {
+      int ordinal = sampler.sample();
+      assertTrue(ordinal == 1 || ordinal == 3, String.valueOf(ordinal));
+    }
+  }
+
+  @Test
+  public void testSampleReturnsNoneWhenEverythingRemoved() {
+    var sampler = new RandomSampler(2);
+    sampler.remove(0);
+    sampler.remove(1);
+    assertEquals(-1, sampler.sample());
+
+    sampler.add(1);
+    assertEquals(1, sampler.sample());
+  }
+
+  @Test
+  public void testWeightedSampleFollowsWeightsAndRemovals() {
+    var sampler = new RandomSampler(5);
+    sampler.setWeights(new double[]{0, 0, 1, 0, 0});
+    for (int i = 0; i < 100; i++)
+      assertEquals(2, sampler.sample());
+
+    sampler.setWeights(new double[]{0, 1, 1, 0, 0});
+    sampler.remove(2);
+    for (int i = 0; i < 100; i++)
+      assertEquals(1, sampler.sample());
+
+    sampler.add(2);
+    sampler.remove(1);
+    for (int i = 0; i < 100; i++)
+      assertEquals(2, sampler.sample());
+  }
+}
@@ -0,0 +1,64 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class SharedCatalogTest {
+
+  @Test
+  public void testBundledCatalogIsLoadedOnce() {
+    assertSame(SharedCatalog.bundled(), SharedCatalog.bundled());
+    assertSame(SharedCatalog.bundled(), new VideoLibrary().getSharedCatalog());
+    assertSame(new VideoLibrary().getSharedCatalog(), new VideoLibrary().getSharedCatalog());
+    assertEquals(5, SharedCatalog.bundled().catalog().size());
+  }
+
+  @Test
+  public void testLibrariesOverSharedCatalogKeepSeparateFlags() {
+    var first = new VideoLibrary(SharedCatalog.bundled());
+    var second = new VideoLibrary(SharedCatalog.bundled());
+    var video = first.getVideo("amazing_cats_video_id");
+
+    assertTrue(first.flag(video, "dont_like_cats"));
+
+    assertEquals("dont_like_cats", first.getFlag(video));
+    assertNull(second.getFlag(video));
+    assertEquals(1, first.countFlagged());
+    assertEquals(0, second.countFlagged());
+  }
+
+  @Test
+  public void testSessionsOverSharedCatalogKeepSeparatePlayback() {
+    var firstOut = new ByteArrayOutputStream();
+    var secondOut = new ByteArrayOutputStream();
+    var first = new VideoPlayer(new VideoLibrary(), new Output(firstOut));
+    var second = new VideoPlayer(new VideoLibrary(), new Output(secondOut));
+
+    first.playVideo("amazing_cats_video_id");
+    first.createPlaylist("my_playlist");
+    second.showPlaying();
+    second.showAllPlaylists();
+
+    String secondText = secondOut.toString(StandardCharsets.UTF_8);
+    assertTrue(secondText.contains("No video is currently playing"), secondText);
+    assertTrue(secondText.contains("No playlists exist yet"), secondText);
+    assertFalse(secondText.contains("my_playlist"), secondText);
+  }
+
+  @Test
+  public void testSearchIndexesAreSharedBetweenLibraries() {
+    var catalog = SharedCatalog.bundled();
+    new VideoLibrary(catalog).searchTitles("cat");
+    new VideoLibrary(catalog).searchTag("#dog");
+
+    assertSame(catalog.titleIndex(), catalog.titleIndex());
+    assertSame(catalog.tagIndex(), catalog.tagIndex());
+  }
+}
@@ -0,0 +1,125 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SnapshotTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path catalog;
+  private Path snapshot;
+  private VideoLibrary library;
+  private PlaylistRegistry playlists;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    catalog = tempDir.resolve("videos.txt");
+    Files.copy(VideoLibrary.defaultCatalog(), catalog);
+    snapshot = tempDir.resolve("videos.snapshot");
+    library = new VideoLibrary(catalog);
+    playlists = new PlaylistRegistry();
+  }
+
+  @Test
+  public void testSnapshotRestoresLibraryFlagsAndPlaylists() throws IOException {
+    library.flag(library.getVideo("amazing_cats_video_id"), "dont_like_cats");
+    VideoPlaylist playlist = playlists.create("My_Playlist");
+    playlist.addVideo(library.getVideo("life_at_google_video_id"));
+    playlist.addVideo(library.getVideo("funny_dogs_video_id"));
+    Snapshot.write(snapshot, catalog, library, playlists);
+
+    Snapshot restored = Snapshot.open(snapshot, catalog);
+    restored.verify();
+    VideoLibrary mapped = restored.getLibrary();
+
+    assertEquals(library.size(), mapped.size());
+    assertEquals(titles(library), titles(mapped));
+    assertEquals(List.of("#cat", "#animal"), mapped.getVideo("amazing_cats_video_id").getTags());
+    assertEquals("dont_like_cats", mapped.getFlag(mapped.getVideo("amazing_cats_video_id")));
+    assertEquals(1, mapped.countFlagged());
+    assertEquals(List.of(mapped.getVideo("another_cat_video_id")), mapped.searchTag("#cat"));
+
+    VideoPlaylist restoredPlaylist = restored.getPlaylists().get("my_playlist");
+    assertEquals("My_Playlist", restoredPlaylist.getName());
+    assertEquals(List.of(mapped.getVideo("life_at_google_video_id"),
+        mapped.getVideo("funny_dogs_video_id")), new ArrayList<>(restoredPlaylist.getVideos()));
+  }
+
+  @Test
+  public void testSnapshotIsStaleOnceCatalogChanges() throws IOException {
+    Snapshot.write(snapshot, catalog, library, playlists);
+    Files.setLastModifiedTime(catalog,
+        FileTime.fromMillis(Files.getLastModifiedTime(catalog).toMillis() + 1000));
+
+    assertNull(Snapshot.open(snapshot, catalog));
+    assertNull(Snapshot.open(tempDir.resolve("missing.snapshot"), catalog));
+  }
+
+  @Test
+  public void testStaleSnapshotStateMovesToChangedCatalog() throws IOException {
+    library.flag(library.getVideo("amazing_cats_video_id"), "dont_like_cats");
+    library.flag(library.getVideo("funny_dogs_video_id"), "dont_like_dogs");
+    VideoPlaylist playlist = playlists.create("My_Playlist");
+    playlist.addVideo(library.getVideo("life_at_google_video_id"));
+    playlist.addVideo(library.getVideo("nothing_video_id"));
+    Snapshot.write(snapshot, catalog, library, playlists);
+    Files.write(catalog, List.of("Amazing Cats | amazing_cats_video_id | #cat",
+        "Life at Google | life_at_google_video_id | #google"));
+
+    assertNull(Snapshot.open(snapshot, catalog));
+    Snapshot stale = Snapshot.openAnyCatalog(snapshot);
+    var videoPlayer = new VideoPlayer(stale.getLibrary(), stale.getPlaylists(),
+        new Output(new ByteArrayOutputStream()));
+    videoPlayer.swapCatalog(SharedCatalog.load(catalog, null, new HeapCatalog.Builder()));
+    VideoLibrary moved = videoPlayer.getVideoLibrary();
+
+    assertEquals(2, moved.size());
+    assertEquals(List.of(moved.getVideo("amazing_cats_video_id")), moved.getFlaggedVideos());
+    assertEquals(List.of(moved.getVideo("life_at_google_video_id")),
+        new ArrayList<>(videoPlayer.getPlaylists().get("my_playlist").getVideos()));
+    assertNull(Snapshot.openAnyCatalog(tempDir.resolve("missing.snapshot")));
+  }
+
+  @Test
+  public void testCorruptSnapshotIsRejected() throws IOException {
+    Snapshot.write(snapshot, catalog, library, playlists);
+    long size = Files.size(snapshot);
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE,
+        StandardOpenOption.READ)) {
+      // flip a byte in the last record segment
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.read(last, size - 2);
+      last.put(0, (byte) (last.get(0) ^ 0xFF)).rewind();
+      channel.write(last, size - 2);
+    }
+
+    Snapshot opened = Snapshot.open(snapshot, catalog);
+    assertThrows(IOException.class, opened::verify);
+
+    Files.write(snapshot, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    assertThrows(IOException.class, () -> Snapshot.open(snapshot, catalog));
+  }
+
+  private static List<String> titles(VideoLibrary library) {
+    List<String> titles = new ArrayList<>();
+    library.iterateByTitle().forEachRemaining(video -> titles.add(video.getTitle()));
+    return titles;
+  }
+}
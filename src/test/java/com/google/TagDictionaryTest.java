@@ -0,0 +1,64 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class TagDictionaryTest {
+
+  @Test
+  public void testInternReturnsStableIdsAndSharedNames() {
+    var dictionary = new TagDictionary();
+    int cat = dictionary.intern("#cat");
+    int dog = dictionary.intern("#dog");
+
+    assertEquals(cat, dictionary.intern(new String("#cat")));
+    assertEquals(dog, dictionary.idOf("#dog"));
+    assertEquals(-1, dictionary.idOf("#bird"));
+    assertSame(dictionary.name(cat), dictionary.name(dictionary.intern("#cat")));
+    assertEquals(2, dictionary.size());
+  }
+
+  @Test
+  public void testConcurrentInterningAgreesOnIds() throws InterruptedException, ExecutionException {
+    var dictionary = new TagDictionary();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        results.add(pool.submit(() -> {
+          int[] ids = new int[1000];
+          for (int i = 0; i < ids.length; i++)
+            ids[i] = dictionary.intern("#tag" + i);
+          return ids;
+        }));
+      }
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results)
+        for (int i = 0; i < expected.length; i++)
+          assertEquals(expected[i], result.get()[i]);
+      assertEquals(1000, dictionary.size());
+      for (int i = 0; i < expected.length; i++)
+        assertEquals("#tag" + i, dictionary.name(expected[i]));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testLoadedVideosShareTagStrings() {
+    var library = new VideoLibrary();
+    String first = library.getVideo("amazing_cats_video_id").getTags().get(1);
+    String second = library.getVideo("funny_dogs_video_id").getTags().get(1);
+
+    assertEquals("#animal", first);
+    assertSame(first, second);
+  }
+}
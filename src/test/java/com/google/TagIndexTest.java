@@ -0,0 +1,31 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TagIndexTest {
+
+  private final TagDictionary dictionary = new TagDictionary();
+  private final TagIndex index = new TagIndex(List.of(
+      new Video("Funny Dogs", "dogs", List.of("#dog", "#animal"), dictionary),
+      new Video("Amazing Cats", "cats", List.of("#cat", "#Animal", "#catnip"), dictionary),
+      new Video("Life at Google", "google", List.of("#google", "#career"), dictionary),
+      new Video("Video about nothing", "nothing", List.of(), dictionary)), dictionary);
+
+  @Test
+  public void testExactLookupIgnoresCase() {
+    assertArrayEquals(new int[]{0, 1}, index.exact("#ANIMAL"));
+    assertArrayEquals(new int[]{1}, index.exact("#cat"));
+    assertArrayEquals(new int[0], index.exact("#ca"));
+  }
+
+  @Test
+  public void testPrefixLookupDeduplicatesVideos() {
+    assertArrayEquals(new int[]{1}, index.prefix("#cat"));
+    assertArrayEquals(new int[]{1, 2}, index.prefix("#ca"));
+    assertArrayEquals(new int[]{0, 1, 2}, index.prefix("#"));
+    assertArrayEquals(new int[0], index.prefix("#blah"));
+  }
+}
@@ -0,0 +1,51 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TagQueryTest {
+
+  private VideoLibrary videoLibrary;
+
+  @BeforeEach
+  public void setUp() {
+    videoLibrary = new VideoLibrary();
+  }
+
+  @Test
+  public void testAndNotQuery() {
+    assertEquals(List.of("amazing_cats_video_id", "another_cat_video_id"),
+        ids("#cat AND #animal NOT #google"));
+    assertEquals(List.of("funny_dogs_video_id"), ids("#animal and not #CAT"));
+  }
+
+  @Test
+  public void testOrQuery() {
+    assertEquals(List.of("funny_dogs_video_id", "life_at_google_video_id"),
+        ids("#dog OR #career"));
+  }
+
+  @Test
+  public void testLeadingNotStartsFromWholeLibrary() {
+    assertEquals(List.of("life_at_google_video_id", "nothing_video_id"), ids("NOT #animal"));
+  }
+
+  @Test
+  public void testMalformedQueries() {
+    assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("AND #cat"));
+    assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("#cat OR"));
+    assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("#cat NOT NOT #dog"));
+    assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("cat"));
+    assertThrows(IllegalArgumentException.class, () -> TagQuery.parse(""));
+  }
+
+  private List<String> ids(String query) {
+    return videoLibrary.queryTags(query).stream().map(Video::getVideoId).sorted()
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,56 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class TitleIndexTest {
+
+  private static final List<String> TITLES = List.of(
+      "Funny Dogs", "Amazing Cats", "Another Cat Video", "Life at Google",
+      "Video about nothing", "CATCATCAT", "");
+
+  private final TagDictionary dictionary = new TagDictionary();
+
+  @Test
+  public void testSearchMatchesLowerCaseContains() {
+    List<Video> videos = new ArrayList<>();
+    for (int i = 0; i < TITLES.size(); i++)
+      videos.add(new Video(TITLES.get(i), "id_" + i, List.of(), dictionary));
+    var index = new TitleIndex(videos);
+
+    for (String term : List.of("", "c", "CA", "cat", "Cat ", "atca", "catcatcat", "video",
+        "o", "about nothing", "google!", "zzz", " "))
+      assertArrayEquals(bruteForce(term), index.search(term), term);
+  }
+
+  @Test
+  public void testSearchMatchesAcrossManyGrams() {
+    var random = new Random(7);
+    List<String> titles = new ArrayList<>();
+    List<Video> videos = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      var title = new StringBuilder();
+      for (int c = 0; c < 12; c++)
+        title.append((char) ('a' + random.nextInt(20)));
+      titles.add(title.toString());
+      videos.add(new Video(title.toString(), "id_" + i, List.of(), dictionary));
+    }
+    var index = new TitleIndex(videos);
+
+    for (String term : List.of("a", "bc", "ABC", "abcd", titles.get(5).substring(3, 9), "zzzz"))
+      assertArrayEquals(IntStream.range(0, titles.size())
+          .filter(i -> titles.get(i).contains(term.toLowerCase()))
+          .toArray(), index.search(term), term);
+  }
+
+  private int[] bruteForce(String term) {
+    return IntStream.range(0, TITLES.size())
+        .filter(i -> TITLES.get(i).toLowerCase().contains(term.toLowerCase()))
+        .toArray();
+  }
+}
@@ -0,0 +1,56 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class TitleOrderTest {
+
+  @Test
+  public void testRestoredOrderMatchesBuiltOrder() {
+    List<Video> videos = randomVideos(500);
+    var built = new TitleOrder(videos);
+    var restored = new TitleOrder(built.toArray());
+
+    assertEquals(built.size(), restored.size());
+    for (int rank = 0; rank < built.size(); rank++) {
+      assertEquals(built.ordinalAt(rank), restored.ordinalAt(rank));
+      assertEquals(rank, restored.rankOf(restored.ordinalAt(rank)));
+    }
+  }
+
+  @Test
+  public void testSortOrdersByTitleThenOrdinal() {
+    List<Video> videos = randomVideos(5000);
+    var order = new TitleOrder(videos);
+    Comparator<Integer> byTitle = Comparator
+        .comparing((Integer ordinal) -> videos.get(ordinal).getTitle())
+        .thenComparing(ordinal -> ordinal);
+
+    for (int size : new int[]{0, 10, 1000, 5000}) {
+      int[] ordinals = new Random(size).ints(0, videos.size()).distinct().limit(size).toArray();
+      int[] expected = IntStream.of(ordinals).boxed().sorted(byTitle).mapToInt(i -> i).toArray();
+      order.sort(ordinals);
+      assertArrayEquals(expected, ordinals);
+    }
+  }
+
+  private static List<Video> randomVideos(int count) {
+    Random random = new Random(count);
+    var dictionary = new TagDictionary();
+    List<Video> videos = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Video video = new Video("Title " + random.nextInt(count / 2), "id_" + i, List.of(),
+          dictionary);
+      video.setOrdinal(i);
+      videos.add(video);
+    }
+    return videos;
+  }
+}